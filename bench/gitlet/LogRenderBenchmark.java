@@ -0,0 +1,100 @@
+package gitlet;
+
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/** Time to render the dates of ENTRIES log entries, made a little under
+ *  a second apart, with a SimpleDateFormat as log used to, with a
+ *  TimestampFormat, and with one TimestampFormat shared by threads
+ *  rendering chunks of the log in parallel.
+ *
+ * @author tomzheng
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class LogRenderBenchmark {
+
+    /** The pattern of log dates. **/
+    private static final String PATTERN = "EEE MMM d HH:mm:ss yyyy Z";
+
+    /** Number of entries rendered. **/
+    @Param({"1000000"})
+    private int entries;
+
+    /** Entries rendered by each parallel task. **/
+    private static final int CHUNK = 4096;
+
+    /** Times of the entries, in milliseconds. **/
+    private long[] _times;
+
+    /** Picks the times of the entries. **/
+    @Setup(Level.Trial)
+    public void setUp() {
+        _times = new long[entries];
+        long time = 1500000000000L;
+        for (int i = 0; i < entries; i++) {
+            _times[i] = time;
+            time += 700;
+        }
+    }
+
+    /** Renders every date with a SimpleDateFormat.
+     * @return characters rendered **/
+    @Benchmark
+    public long simpleDateFormat() {
+        SimpleDateFormat format = new SimpleDateFormat(PATTERN);
+        long length = 0;
+        for (long time: _times) {
+            length += format.format(new Date(time)).length();
+        }
+        return length;
+    }
+
+    /** Renders every date with a TimestampFormat.
+     * @return characters rendered **/
+    @Benchmark
+    public long cached() {
+        TimestampFormat format = new TimestampFormat(PATTERN);
+        long length = 0;
+        for (long time: _times) {
+            length += format.format(time).length();
+        }
+        return length;
+    }
+
+    /** Renders chunks of the dates in parallel with one shared
+     *  TimestampFormat.
+     * @return characters rendered **/
+    @Benchmark
+    public long cachedParallel() {
+        TimestampFormat format = new TimestampFormat(PATTERN);
+        return IntStream.range(0, (entries + CHUNK - 1) / CHUNK).parallel()
+            .mapToLong(chunk -> {
+                long length = 0;
+                int end = Math.min(entries, (chunk + 1) * CHUNK);
+                for (int i = chunk * CHUNK; i < end; i++) {
+                    length += format.format(_times[i]).length();
+                }
+                return length;
+            }).sum();
+    }
+}
@@ -0,0 +1,92 @@
+package gitlet;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/** Time to merge two versions of a file of LINES lines, each of which
+ *  changes EDITS scattered lines of the base, none of them the same.
+ *  The merge is clean and its result is thrown away.
+ *
+ * @author tomzheng
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class Merge3Benchmark {
+
+    /** Number of lines of the base. **/
+    @Param({"1000", "100000"})
+    private int lines;
+
+    /** Number of lines changed on each side. **/
+    @Param({"10", "1000"})
+    private int edits;
+
+    /** The lines of the base version. **/
+    private List<ByteBuffer> _base;
+
+    /** The lines of the current version. **/
+    private List<ByteBuffer> _ours;
+
+    /** The lines of the other version. **/
+    private List<ByteBuffer> _theirs;
+
+    /** A stream that drops everything. **/
+    private final OutputStream _sink = OutputStream.nullOutputStream();
+
+    /** Builds the three versions. **/
+    @Setup(Level.Trial)
+    public void setUp() {
+        List<String> base = new ArrayList<>();
+        for (int i = 0; i < lines; i++) {
+            base.add("line " + i + " of the base\n");
+        }
+        List<String> ours = new ArrayList<>(base);
+        List<String> theirs = new ArrayList<>(base);
+        Random random = new Random(lines);
+        int stride = Math.max(4, lines / edits);
+        for (int i = 0; i + stride <= lines; i += stride) {
+            int at = i + random.nextInt(stride / 2);
+            ours.set(at, "ours " + at + "\n");
+            theirs.set(at + stride / 2, "theirs " + at + "\n");
+        }
+        _base = lines(base);
+        _ours = lines(ours);
+        _theirs = lines(theirs);
+    }
+
+    /** Returns the lines of the file made of TEXT. **/
+    private static List<ByteBuffer> lines(List<String> text) {
+        return Merge3.lines(String.join("", text)
+                .getBytes(StandardCharsets.UTF_8));
+    }
+
+    /** Merges the two versions.
+     * @return whether they conflict **/
+    @Benchmark
+    public boolean merge() throws IOException {
+        return Merge3.merge(_base, _ours, _theirs, _sink);
+    }
+}
@@ -0,0 +1,107 @@
+package gitlet;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/** Time to merge a branch into master in a repository made by
+ *  RepoGenerator with FILES files of SIZE bytes and DEPTH commits. Both
+ *  branches change the same tenth of the files after they split,
+ *  master their first lines and the branch their last ones, so every
+ *  such file is merged line by line; if CONFLICT, the branch changes
+ *  the first lines as well, and every such file conflicts. Master is
+ *  reset to where it was before each merge, outside the time measured.
+ *
+ * @author tomzheng
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class MergeBenchmark {
+
+    /** Number of files. **/
+    @Param({"100", "10000"})
+    private int files;
+
+    /** Size of each file in bytes. **/
+    @Param({"1024"})
+    private int size;
+
+    /** Number of commits before the branches split. **/
+    @Param({"100"})
+    private int depth;
+
+    /** Whether the changes conflict. **/
+    @Param({"false", "true"})
+    private boolean conflict;
+
+    /** The repository. **/
+    private RepoGenerator _repo;
+
+    /** Its commands. **/
+    private Gitlet _gitlet;
+
+    /** The tip of master before merging. **/
+    private String _master;
+
+    /** Builds the repository and the two branches. **/
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        _repo = new RepoGenerator(files, size, files * 31L + depth);
+        Gitlet g = _repo.create(depth, false);
+        int changed = Math.max(1, files / 10);
+        g.branch("other");
+        g.checkout("other");
+        for (int i = 0; i < changed; i++) {
+            _repo.rewrite(i, _repo.lines() - 1);
+            if (conflict) {
+                _repo.rewrite(i, 0);
+            }
+        }
+        g.add(".");
+        g.commit("other");
+        g.checkout("master");
+        for (int i = 0; i < changed; i++) {
+            _repo.rewrite(i, 0);
+        }
+        g.add(".");
+        _master = g.commit("master");
+        g.save();
+        _gitlet = Gitlet.open(_repo.dir());
+    }
+
+    /** Puts master back where it was before merging. **/
+    @Setup(Level.Invocation)
+    public void unmerge() {
+        _gitlet.reset(_master);
+    }
+
+    /** Removes the repository. **/
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        _repo.delete();
+    }
+
+    /** Merges the branch into master.
+     * @return whether it conflicted **/
+    @Benchmark
+    public boolean merge() {
+        return _gitlet.merge("other");
+    }
+}
@@ -0,0 +1,146 @@
+package gitlet;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Stream;
+
+/** Builds repositories of a given shape for the benchmarks: FILES text
+ *  files of about SIZE bytes each, a hundred to a directory, committed
+ *  and then changed over DEPTH commits in all, each of which rewrites a
+ *  line in one file in a hundred. The contents depend only on the seed,
+ *  so every run of a benchmark sees the same repository. A generated
+ *  repository may be left with loose objects or packed, to compare the
+ *  two.
+ *
+ * @author tomzheng
+ */
+class RepoGenerator {
+
+    /** Length of a line of a generated file, with its newline. **/
+    static final int LINE = 64;
+
+    /** Number of files. **/
+    private final int _files;
+
+    /** Number of lines of each file. **/
+    private final int _lines;
+
+    /** Source of the contents. **/
+    private final Random _random;
+
+    /** The working directory of the repository. **/
+    private final File _dir;
+
+    /** The repository. **/
+    private Gitlet _gitlet;
+
+    /** Constructor for a generator of repositories of FILES files of
+     *  about SIZE bytes, made from SEED. **/
+    RepoGenerator(int files, int size, long seed) throws IOException {
+        _files = files;
+        _lines = Math.max(1, size / LINE);
+        _random = new Random(seed);
+        _dir = Files.createTempDirectory("gitlet-bench").toFile();
+    }
+
+    /** Creates the repository, with every file committed and then
+     *  DEPTH - 1 more commits, packed if PACKED. Saving is left
+     *  deferred, so that building large histories stays quick.
+     * @return the repository **/
+    Gitlet create(int depth, boolean packed) throws IOException {
+        _gitlet = Gitlet.init(_dir);
+        _gitlet.setAutoSave(false);
+        for (int i = 0; i < _files; i++) {
+            String[] lines = new String[_lines];
+            for (int j = 0; j < _lines; j++) {
+                lines[j] = line();
+            }
+            write(i, lines);
+        }
+        _gitlet.add(".");
+        _gitlet.commit("commit 0");
+        for (int c = 1; c < depth; c++) {
+            change(Math.max(1, _files / 100), "commit " + c);
+        }
+        _gitlet.save();
+        if (packed) {
+            _gitlet.gc();
+        }
+        return _gitlet;
+    }
+
+    /** Getter method for the working directory.
+     * @return directory **/
+    File dir() {
+        return _dir;
+    }
+
+    /** Returns the name of working file I. **/
+    static String name(int i) {
+        return String.format("d%03d/f%06d.txt", i / 100, i);
+    }
+
+    /** Rewrites a random line of COUNT random files, stages them and
+     *  commits them with MESSAGE.
+     * @return the id of the commit **/
+    String change(int count, String message) {
+        List<String> names = new ArrayList<>();
+        for (int k = 0; k < count; k++) {
+            int i = _random.nextInt(_files);
+            rewrite(i, _random.nextInt(_lines));
+            names.add(name(i));
+        }
+        _gitlet.add(names.toArray(new String[0]));
+        return _gitlet.commit(message);
+    }
+
+    /** Replaces line J of working file I with a new one. **/
+    void rewrite(int i, int j) {
+        String[] lines = Utils.readContentsAsString(
+                Utils.join(_dir, name(i))).split("(?<=\n)");
+        lines[j] = line();
+        write(i, lines);
+    }
+
+    /** Getter method for the number of lines of each file.
+     * @return lines **/
+    int lines() {
+        return _lines;
+    }
+
+    /** Writes LINES to working file I. **/
+    private void write(int i, String[] lines) {
+        File f = Utils.join(_dir, name(i));
+        f.getParentFile().mkdirs();
+        Utils.writeContents(f, String.join("", lines));
+    }
+
+    /** Returns a random line of lower-case words. **/
+    private String line() {
+        StringBuilder line = new StringBuilder(LINE);
+        while (line.length() < LINE - 1) {
+            int c = _random.nextInt(27);
+            line.append(c == 26 ? ' ' : (char) ('a' + c));
+        }
+        return line.append('\n').toString();
+    }
+
+    /** Removes the repository. **/
+    void delete() throws IOException {
+        delete(_dir);
+    }
+
+    /** Removes DIR and everything under it. **/
+    static void delete(File dir) throws IOException {
+        try (Stream<Path> paths = Files.walk(dir.toPath())) {
+            paths.sorted(Comparator.reverseOrder())
+                    .map(Path::toFile).forEach(File::delete);
+        }
+    }
+}
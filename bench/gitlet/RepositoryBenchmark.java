@@ -0,0 +1,164 @@
+package gitlet;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.HashMap;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/** Time of the everyday commands on a repository made by RepoGenerator
+ *  with FILES files of SIZE bytes and DEPTH commits, its objects loose
+ *  or PACKED. Each command runs in process through Gitlet and saves
+ *  what it changed, as it would from the command line; the time to
+ *  start a JVM is left out. A side branch differs from master in one
+ *  file in ten, for checkout.
+ *
+ * @author tomzheng
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class RepositoryBenchmark {
+
+    /** Number of files. **/
+    @Param({"100", "10000"})
+    private int files;
+
+    /** Size of each file in bytes. **/
+    @Param({"1024"})
+    private int size;
+
+    /** Number of commits on master. **/
+    @Param({"100"})
+    private int depth;
+
+    /** Whether the objects are packed. **/
+    @Param({"false", "true"})
+    private boolean packed;
+
+    /** The repository. **/
+    private RepoGenerator _repo;
+
+    /** Its commands. **/
+    private Gitlet _gitlet;
+
+    /** Number of the next version of a file written. **/
+    private int _version;
+
+    /** Whether master is checked out. **/
+    private boolean _onMaster;
+
+    /** The metadata of the repository. **/
+    private MetadataStore _store;
+
+    /** Its staging area. **/
+    private StagingArea _staged;
+
+    /** Builds the repository and the side branch. **/
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        _repo = new RepoGenerator(files, size, files * 31L + depth);
+        Gitlet g = _repo.create(depth, packed);
+        g.branch("side");
+        g.checkout("side");
+        _repo.change(Math.max(1, files / 10), "side");
+        g.checkout("master");
+        g.save();
+        _gitlet = Gitlet.open(_repo.dir());
+        _onMaster = true;
+        File folder = Utils.join(_repo.dir(), ".gitlet");
+        _store = new MetadataStore(folder, new ObjectStore(folder));
+        _staged = _store.readIndex();
+    }
+
+    /** Removes the repository. **/
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        _repo.delete();
+    }
+
+    /** Rewrites a line of the first file.
+     * @return its name **/
+    private String edit() {
+        _version += 1;
+        _repo.rewrite(0, _version % _repo.lines());
+        return RepoGenerator.name(0);
+    }
+
+    /** Changes and stages one file.
+     * @return head **/
+    @Benchmark
+    public String add() {
+        _gitlet.add(edit());
+        return _gitlet.head();
+    }
+
+    /** Changes, stages and commits one file.
+     * @return the new commit **/
+    @Benchmark
+    public String commit() {
+        _gitlet.add(edit());
+        return _gitlet.commit("version " + _version);
+    }
+
+    /** Switches between master and the side branch.
+     * @return head **/
+    @Benchmark
+    public String checkout() {
+        _onMaster = !_onMaster;
+        _gitlet.checkout(_onMaster ? "master" : "side");
+        return _gitlet.head();
+    }
+
+    /** Computes the status.
+     * @return status **/
+    @Benchmark
+    public Status status() {
+        return _gitlet.status();
+    }
+
+    /** Writes the log of the current branch, which walks its whole
+     *  history, and throws it away.
+     * @return head **/
+    @Benchmark
+    public String log() throws IOException {
+        _gitlet.log(Writer.nullWriter());
+        return _gitlet.head();
+    }
+
+    /** Opens the repository and reads what most commands need: the
+     *  staging area and the files of the head commit.
+     * @return those files **/
+    @Benchmark
+    public HashMap<String, ObjectId> load() {
+        Repository r = Repository.load(_repo.dir());
+        r.getStagingArea();
+        return r.getFiles(r.getHeadCommit());
+    }
+
+    /** Writes out the staging area, which is most of what saving after
+     *  a command costs.
+     * @return the staging area **/
+    @Benchmark
+    public StagingArea persist() {
+        _store.writeIndex(_staged);
+        return _staged;
+    }
+}
@@ -0,0 +1,114 @@
+package gitlet;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Formatter;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/** Time to hash SIZE bytes to a hex id the way Utils.sha1 used to, with
+ *  a digest looked up for every hash and a Formatter, and the way it
+ *  does now, and to turn a hash into hex each way. Small sizes are
+ *  dominated by the lookup and formatting, as for commit and tree ids.
+ *
+ * @author tomzheng
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class Sha1Benchmark {
+
+    /** Number of bytes hashed. **/
+    @Param({"64", "1024", "65536"})
+    private int size;
+
+    /** The bytes hashed. **/
+    private byte[] _data;
+
+    /** A hash. **/
+    private byte[] _hash;
+
+    /** Picks the bytes hashed. **/
+    @Setup(Level.Trial)
+    public void setUp() {
+        _data = new byte[size];
+        new Random(size).nextBytes(_data);
+        _hash = new byte[Sha1.BYTES];
+        new Random(0).nextBytes(_hash);
+    }
+
+    /** Hashes as Utils.sha1 used to.
+     * @return hash **/
+    @Benchmark
+    public String legacy() throws NoSuchAlgorithmException {
+        MessageDigest md = MessageDigest.getInstance("SHA-1");
+        md.update(_data);
+        return legacyHex(md.digest());
+    }
+
+    /** Hashes with Utils.sha1.
+     * @return hash **/
+    @Benchmark
+    public String current() {
+        return Utils.sha1(_data);
+    }
+
+    /** Turns a hash into hex through a Formatter.
+     * @return hex **/
+    @Benchmark
+    public String legacyHex() {
+        return legacyHex(_hash);
+    }
+
+    /** Turns a hash into hex with Sha1.hex.
+     * @return hex **/
+    @Benchmark
+    public String currentHex() {
+        return Sha1.hex(_hash);
+    }
+
+    /** Returns BYTES in hex, as Utils.sha1 used to. **/
+    private static String legacyHex(byte[] bytes) {
+        Formatter result = new Formatter();
+        for (byte b : bytes) {
+            result.format("%02x", b);
+        }
+        return result.toString();
+    }
+
+    /** Hashes a short string, as for the id of a commit.
+     * @return hash **/
+    @Benchmark
+    public String currentString() {
+        return Utils.sha1("tree", "message", Integer.toString(size));
+    }
+
+    /** Hashes a short string as Utils.sha1 used to.
+     * @return hash **/
+    @Benchmark
+    public String legacyString() throws NoSuchAlgorithmException {
+        MessageDigest md = MessageDigest.getInstance("SHA-1");
+        for (String s : new String[] {"tree", "message",
+                                      Integer.toString(size)}) {
+            md.update(s.getBytes(StandardCharsets.UTF_8));
+        }
+        return legacyHex(md.digest());
+    }
+}
@@ -0,0 +1,95 @@
+package gitlet;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/** Time of a status on a repository of FILES tracked files, one in a
+ *  hundred of them modified and as many untracked files beside them.
+ *  The time per file should stay flat as FILES grows.
+ *
+ * @author tomzheng
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class StatusBenchmark {
+
+    /** Number of tracked files. **/
+    @Param({"1000", "10000", "100000"})
+    private int files;
+
+    /** Working directory of the repository. **/
+    private File _dir;
+
+    /** Creates the repository, commits every file, then edits some
+     *  and adds untracked ones. **/
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        _dir = Files.createTempDirectory("gitlet-status").toFile();
+        List<String> names = new ArrayList<>();
+        for (int i = 0; i < files; i++) {
+            names.add(write(String.format("f%07d.txt", i), "version 1 " + i));
+        }
+        Repository r = Repository.init(_dir);
+        r.addFiles(names);
+        r.createCommit("all files");
+        r.save();
+        for (int i = 0; i < files; i += 100) {
+            write(String.format("f%07d.txt", i), "version 2 " + i);
+            write(String.format("u%07d.txt", i), "untracked " + i);
+        }
+    }
+
+    /** Removes the repository. **/
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        try (Stream<Path> paths = Files.walk(_dir.toPath())) {
+            paths.sorted(Comparator.reverseOrder())
+                    .map(Path::toFile).forEach(File::delete);
+        }
+    }
+
+    /** Opens the repository and computes its status, as the status
+     *  command does.
+     * @return status **/
+    @Benchmark
+    public Status status() {
+        Repository r = Repository.load(_dir);
+        Status status = new Status(r);
+        r.save();
+        return status;
+    }
+
+    /** Writes CONTENTS to the working file NAME.
+     * @return NAME **/
+    private String write(String name, String contents) throws IOException {
+        Files.write(new File(_dir, name).toPath(),
+                contents.getBytes(StandardCharsets.UTF_8));
+        return name;
+    }
+}
@@ -0,0 +1,136 @@
+package gitlet;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
+
+/** Runs many commands on a repository in one process, as `gitlet batch
+ *  [FILE]` does. Commands are read one to a line, as they would be given
+ *  to gitlet: words are separated by blanks and may be quoted with '...'
+ *  or with "...", inside which \" stands for " and \\ for \. Blank lines
+ *  and lines starting with # are skipped.
+ *
+ *  The repository is loaded once. Objects and commits are written as
+ *  they are made, but branches, the head and the staging area are only
+ *  saved by the command `checkpoint` and at the end of the batch. A
+ *  command that fails prints its error, having changed nothing, and the
+ *  batch goes on with the next one. A command that crashes prints its
+ *  stack trace and may have left the repository half changed in memory,
+ *  so the batch loads it again, going back to the last checkpoint, and
+ *  goes on. If the batch is cut short, what it did after the last
+ *  checkpoint is lost, apart from the objects.
+ *
+ * @author tomzheng
+ */
+class Batch {
+
+    /** The working directory of the repository. **/
+    private final File _dir;
+
+    /** Where the output of the commands goes. **/
+    private final PrintStream _out;
+
+    /** The repository, or null until a command opens it. **/
+    private Gitlet _gitlet;
+
+    /** Constructor for a batch run on the repository in DIR, printing
+     *  to OUT. **/
+    Batch(File dir, PrintStream out) {
+        _dir = dir;
+        _out = out;
+    }
+
+    /** Runs every command read from INPUT, then saves. **/
+    void run(Reader input) throws IOException {
+        if (_gitlet == null && Repository.exists(_dir)) {
+            _gitlet = Gitlet.open(_dir);
+            _gitlet.setAutoSave(false);
+        }
+        BufferedReader in = new BufferedReader(input);
+        for (String line = in.readLine(); line != null;
+             line = in.readLine()) {
+            try {
+                List<String> args = words(line);
+                if (args.size() == 1 && args.get(0).equals("checkpoint")) {
+                    checkpoint();
+                } else if (!args.isEmpty()) {
+                    _gitlet = Main.execute(_dir, _gitlet, _out,
+                            args.toArray(new String[0]));
+                    _gitlet.setAutoSave(false);
+                }
+            } catch (GitletException excp) {
+                _out.println(excp.getMessage());
+            } catch (RuntimeException excp) {
+                excp.printStackTrace(_out);
+                _gitlet = null;
+            }
+        }
+        checkpoint();
+    }
+
+    /** Saves what the commands so far changed, and flushes their
+     *  output. **/
+    void checkpoint() {
+        if (_gitlet != null) {
+            _gitlet.save();
+        }
+        _out.flush();
+    }
+
+    /** Returns the words of the command LINE, none if it is blank or a
+     *  comment. **/
+    static List<String> words(String line) {
+        List<String> words = new ArrayList<>();
+        StringBuilder word = null;
+        int i = 0;
+        while (i < line.length()) {
+            char c = line.charAt(i);
+            if (Character.isWhitespace(c)) {
+                if (word != null) {
+                    words.add(word.toString());
+                    word = null;
+                }
+                i += 1;
+                continue;
+            }
+            if (word == null) {
+                if (c == '#' && words.isEmpty()) {
+                    break;
+                }
+                word = new StringBuilder();
+            }
+            if (c == '\'') {
+                int end = line.indexOf('\'', i + 1);
+                if (end < 0) {
+                    throw new GitletException("Incorrect operands.");
+                }
+                word.append(line, i + 1, end);
+                i = end + 1;
+            } else if (c == '"') {
+                i += 1;
+                while (i < line.length() && line.charAt(i) != '"') {
+                    if (line.charAt(i) == '\\' && i + 1 < line.length()) {
+                        i += 1;
+                    }
+                    word.append(line.charAt(i));
+                    i += 1;
+                }
+                if (i == line.length()) {
+                    throw new GitletException("Incorrect operands.");
+                }
+                i += 1;
+            } else {
+                word.append(c);
+                i += 1;
+            }
+        }
+        if (word != null) {
+            words.add(word.toString());
+        }
+        return words;
+    }
+}
@@ -0,0 +1,89 @@
+package gitlet;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.Reader;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/** Tests of batches of commands.
+ *  @author tomzheng
+ */
+public class BatchTest {
+
+    @Test
+    public void splitsWords() {
+        assertEquals(Arrays.asList("commit", "two words"),
+                Batch.words("  commit \"two words\" "));
+        assertEquals(Arrays.asList("find", "say \"hi\" \\", "it's"),
+                Batch.words("find \"say \\\"hi\\\" \\\\\" 'it'\"'\"'s'"));
+        assertEquals(Arrays.asList("commit", ""), Batch.words("commit ''"));
+        assertEquals(Arrays.asList("rm", "#1"), Batch.words("rm #1"));
+        assertTrue(Batch.words("# add f.txt").isEmpty());
+        assertTrue(Batch.words("   ").isEmpty());
+    }
+
+    @Test(expected = GitletException.class)
+    public void unbalancedQuote() {
+        Batch.words("commit \"oops");
+    }
+
+    @Test
+    public void savesAtCheckpoints() throws IOException {
+        File dir = ObjectStoreTest.tempDir();
+        Repository.init(dir);
+        Utils.writeContents(Utils.join(dir, "a.txt"), "wug\n");
+        String[] lines = {"add a.txt", "commit first", "commit 'nothing new'",
+                          "branch other", "checkpoint", "branch third"};
+        Reader input = new Reader() {
+            private int _next;
+
+            @Override
+            public int read(char[] buf, int off, int len) {
+                if (_next == lines.length) {
+                    return -1;
+                }
+                assertEquals(_next > 4 ? 2 : 1, branches(dir).size());
+                String line = lines[_next++] + "\n";
+                line.getChars(0, line.length(), buf, off);
+                return line.length();
+            }
+
+            @Override
+            public void close() {
+            }
+        };
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        new Batch(dir, new PrintStream(bytes)).run(input);
+        assertEquals("No changes added to the commit.\n", bytes.toString());
+        assertEquals(Arrays.asList("master", "other", "third"),
+                branches(dir));
+    }
+
+    @Test
+    public void goesBackToCheckpointAfterCrash() throws IOException {
+        File dir = ObjectStoreTest.tempDir();
+        Repository.init(dir);
+        Utils.writeContents(Utils.join(dir, ".gitlet", "index"), "garbage");
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        new Batch(dir, new PrintStream(bytes)).run(new StringReader(
+                "branch other\ncheckpoint\nbranch lost\nstatus\n"
+                + "branch after\n"));
+        assertTrue(bytes.toString().startsWith(
+                "java.lang.IllegalArgumentException"));
+        assertEquals(Arrays.asList("after", "master", "other"),
+                branches(dir));
+    }
+
+    /** Returns the names of the branches saved in DIR. */
+    private static List<String> branches(File dir) {
+        return new ArrayList<>(Repository.load(dir).getBranches().keySet());
+    }
+}
@@ -1,12 +1,28 @@
 package gitlet;
 
-import java.io.Serializable;
-import java.util.HashMap;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
 import java.util.Date;
-
-/** Commit class.
+import java.util.List;
+
+/** Commit class. The files of a commit are kept in a hierarchy of
+ * trees in the object store (see Tree); the commit holds the hash of
+ * the root tree.
+ *
+ * A commit is stored as its canonical encoding, one field per line in
+ * a fixed order, then a blank line and the message:
+ *
+ *     tree HASH
+ *     parent HASH        (none, one, or two for a merge, first first)
+ *     time MILLISECONDS
+ *     generation N
+ *
+ *     MESSAGE
+ *
+ * Its hash is the hash of this encoding, so it depends on nothing but
+ * these fields, and the same commit made anywhere has the same hash.
  * @author tomzheng **/
-public class Commit implements Serializable {
+public class Commit {
     /** The commit message. **/
     private String _commitmessage;
 
@@ -16,43 +32,103 @@ public class Commit implements Serializable {
     /** The time the commit was created. **/
     private Date _timestamp;
 
-    /** The commit tree. **/
-    private HashMap<String, String> _commitTree;
-
-    /** The parent of the commit. **/
-    private Commit _parent;
+    /** Buffer of the encoding of each thread, reused. **/
+    private static final ThreadLocal<StringBuilder> BUFFER =
+        ThreadLocal.withInitial(StringBuilder::new);
 
     /** The hash of the parent commit. **/
     private String _parentHash;
 
-    /** Coparent of this commit. **/
-    private Commit _coparent;
+    /** The hash of the root tree. **/
+    private String _treeHash;
+
+    /** The hash of the branch merged in by this commit, or null. **/
+    private String _mergeParentHash;
+
+    /** One more than the greatest generation of the parents, 1 for
+     * the initial commit. **/
+    private int _generation;
 
-    /** Initial commit constructor. **/
-    public Commit() {
+    /** Initial commit constructor, taking the hash of the empty
+     * tree TREE. **/
+    public Commit(String tree) {
         _commitmessage = "initial commit";
-        _parent = null;
         _parentHash = null;
         _timestamp = new Date(0);
-        _commitTree = new HashMap<>();
-        _hash = Utils.sha1(Utils.serialize(_commitTree),
-                Utils.serialize(_timestamp), _commitmessage);
+        _treeHash = tree;
+        _generation = 1;
+        _hash = Utils.sha1(encode());
     }
 
-    /** Commit constructor that takes in staging
-     * area SA, the hash HEAD, and string MESSAGE. **/
-    public Commit(StagingArea sa, String head, String message) {
-        _timestamp = new Date();
+    /** Commit constructor that takes in the hash of the root
+     * tree TREE, the hash HEAD, the hash MERGED of the branch merged
+     * in or null, the GENERATION, and string MESSAGE. **/
+    public Commit(String tree, String head, String merged, int generation,
+                  String message) {
+        this(tree, head, merged, generation, new Date(), message);
+    }
+
+    /** Commit constructor as above, for a commit made at TIME. **/
+    Commit(String tree, String head, String merged, int generation,
+           Date time, String message) {
+        _timestamp = time;
         _parentHash = head;
+        _mergeParentHash = merged;
+        _generation = generation;
         _commitmessage = message;
-        _commitTree = new HashMap<>(sa.getBranches());
-        _hash = Utils.sha1(Utils.serialize(_commitTree),
-                Utils.serialize(_timestamp), _commitmessage);
+        _treeHash = tree;
+        _hash = Utils.sha1(encode());
     }
 
-    /** Function that allows you to set the MESSAGE. **/
-    public void setMessage(String message) {
-        _commitmessage = message;
+    /** Constructor for a commit whose fields are filled in by
+     * decode. **/
+    private Commit() {
+    }
+
+    /** Returns the canonical encoding of this commit. **/
+    byte[] encode() {
+        StringBuilder out = BUFFER.get();
+        out.setLength(0);
+        out.append("tree ").append(_treeHash).append('\n');
+        for (String parent: getParents()) {
+            out.append("parent ").append(parent).append('\n');
+        }
+        out.append("time ").append(_timestamp.getTime()).append('\n');
+        out.append("generation ").append(_generation).append("\n\n");
+        out.append(_commitmessage);
+        return out.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    /** Returns the commit with hash HASH whose canonical encoding is
+     * DATA. **/
+    static Commit decode(String hash, byte[] data) {
+        String text = new String(data, StandardCharsets.UTF_8);
+        Commit c = new Commit();
+        c._hash = hash;
+        int start = 0;
+        for (int end = text.indexOf('\n'); end > start;
+             end = text.indexOf('\n', start)) {
+            int space = text.indexOf(' ', start);
+            String field = text.substring(start, space);
+            String value = text.substring(space + 1, end);
+            if (field.equals("tree")) {
+                c._treeHash = value;
+            } else if (field.equals("parent")) {
+                if (c._parentHash == null) {
+                    c._parentHash = value;
+                } else {
+                    c._mergeParentHash = value;
+                }
+            } else if (field.equals("time")) {
+                c._timestamp = new Date(Long.parseLong(value));
+            } else if (field.equals("generation")) {
+                c._generation = Integer.parseInt(value);
+            }
+            start = end + 1;
+        }
+        c._commitmessage = text.substring(Math.min(text.length(),
+                start + 1));
+        return c;
     }
 
     /** Getter method for message.
@@ -67,37 +143,35 @@ public class Commit implements Serializable {
         return _timestamp;
     }
 
-    /** Getter method for parent.
-     * @return parent **/
-    public Commit getParent() {
-        return _parent;
-    }
-
     /** Getter method for parent hash.
      * @return parenthash **/
     public String getParentHash() {
         return _parentHash;
     }
 
-    /** Method to set the PARENTHASH. **/
-    public void setParentHash(String parenthash) {
-        _parentHash = parenthash;
-    }
-
-    /** Method to set the PARENT. **/
-    public void setParent(Commit parent) {
-        _parent = parent;
+    /** Getter method for the hash of the merged branch.
+     * @return hash, or null if this is not a merge commit **/
+    public String getMergeParentHash() {
+        return _mergeParentHash;
     }
 
-    /** Method to set the COPARENT. **/
-    public void setCoParent(Commit coparent) {
-        _coparent = coparent;
+    /** Getter method for the hashes of all parents.
+     * @return list, first parent first **/
+    public List<String> getParents() {
+        List<String> parents = new ArrayList<>();
+        if (_parentHash != null) {
+            parents.add(_parentHash);
+        }
+        if (_mergeParentHash != null) {
+            parents.add(_mergeParentHash);
+        }
+        return parents;
     }
 
-    /** Getter method for commit tree.
-     * @return committree **/
-    public HashMap<String, String> getBranches() {
-        return _commitTree;
+    /** Getter method for the generation.
+     * @return generation **/
+    public int getGeneration() {
+        return _generation;
     }
 
     /** Getter method for hash.
@@ -106,20 +180,9 @@ public class Commit implements Serializable {
         return _hash;
     }
 
-
-    /** Getter method for the commit tree.
-     * @return committree **/
-    public HashMap<String, String> getTree() {
-        return _commitTree;
-    }
-
-    /** Checks if file FILENAME is tracked.
-     * @return boolean **/
-    public boolean isTracked(String filename) {
-        if (_commitTree.containsKey(filename)) {
-            return true;
-        }
-        return false;
+    /** Getter method for the hash of the root tree.
+     * @return hash **/
+    public String getTreeHash() {
+        return _treeHash;
     }
 }
-
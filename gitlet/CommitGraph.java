@@ -0,0 +1,325 @@
+package gitlet;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Function;
+
+/** The shape of the commit history, kept in one binary file so that
+ *  walking it needs no commit to be read. The file holds "GGRF", the
+ *  format version and the number of commits, a 256-entry fan-out
+ *  table counting the ids whose first byte is at most each value, the
+ *  sorted 20-byte ids of the commits, and then, for each id in the
+ *  same order, the indexes of its first and second parents (-1 for
+ *  none), its generation and its timestamp in milliseconds.
+ *
+ *  The file is read through a memory map. It covers the commits that
+ *  existed when it was written; newer ones are read from the object
+ *  store until it is written again, by merging them into it.
+ *
+ * @author tomzheng
+ */
+class CommitGraph {
+
+    /** Version of the file format. **/
+    static final int VERSION = 1;
+
+    /** Length of a binary id. **/
+    private static final int ID_BYTES = PackFile.ID_BYTES;
+
+    /** Length of the header and fan-out table. **/
+    private static final int HEADER = 12 + 256 * 4;
+
+    /** Length of the record of a commit. **/
+    private static final int RECORD = 4 + 4 + 4 + 8;
+
+    /** The mapped file. **/
+    private final ByteBuffer _data;
+
+    /** Number of commits. **/
+    private final int _count;
+
+    /** Fan-out table. **/
+    private final int[] _fanout = new int[256];
+
+    /** Constructor for the graph mapped in DATA. **/
+    private CommitGraph(ByteBuffer data) throws IOException {
+        byte[] magic = new byte[4];
+        data.get(magic);
+        int version = data.getInt();
+        if (!new String(magic, StandardCharsets.US_ASCII).equals("GGRF")
+                || version != VERSION) {
+            throw new IOException("not a commit graph");
+        }
+        _count = data.getInt();
+        for (int i = 0; i < 256; i++) {
+            _fanout[i] = data.getInt();
+        }
+        if (data.capacity() != HEADER + (long) _count * (ID_BYTES + RECORD)) {
+            throw new IOException("truncated commit graph");
+        }
+        _data = data;
+    }
+
+    /** Maps the graph in FILE into memory.
+     * @return graph, or null if FILE is missing or not a commit graph **/
+    static CommitGraph open(File file) {
+        if (!file.isFile()) {
+            return null;
+        }
+        try (FileChannel channel = FileChannel.open(file.toPath())) {
+            if (channel.size() < HEADER) {
+                return null;
+            }
+            return new CommitGraph(channel.map(FileChannel.MapMode.READ_ONLY,
+                    0, channel.size()));
+        } catch (IOException excp) {
+            return null;
+        }
+    }
+
+    /** Getter method for the number of commits.
+     * @return count **/
+    int size() {
+        return _count;
+    }
+
+    /** Returns the index of commit ID, or -1 if the graph does not
+     *  cover it, by binary search. **/
+    int find(String id) {
+        byte[] key = PackFile.toBytes(id);
+        int first = key[0] & 0xff;
+        int at = lowerBound(key, first == 0 ? 0 : _fanout[first - 1],
+                _fanout[first]);
+        return at < _count && compare(at, key) == 0 ? at : -1;
+    }
+
+    /** Returns the ids starting with PREFIX, a string of lower-case hex
+     *  digits, found by binary search, but at most LIMIT of them. **/
+    List<String> withPrefix(String prefix, int limit) {
+        StringBuilder padded = new StringBuilder(prefix);
+        while (padded.length() < 2 * ID_BYTES) {
+            padded.append('0');
+        }
+        List<String> ids = new ArrayList<>();
+        for (int i = lowerBound(PackFile.toBytes(padded.toString()), 0,
+                 _count); i < _count && ids.size() < limit; i++) {
+            String id = id(i);
+            if (!id.startsWith(prefix)) {
+                break;
+            }
+            ids.add(id);
+        }
+        return ids;
+    }
+
+    /** Returns the index of the first id from LO up to HI that is not
+     *  less than KEY, or HI if there is none. **/
+    private int lowerBound(byte[] key, int lo, int hi) {
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (compare(mid, key) < 0) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo;
+    }
+
+    /** Compares the id at INDEX with KEY, as unsigned bytes.
+     * @return negative, zero or positive **/
+    private int compare(int index, byte[] key) {
+        int at = HEADER + index * ID_BYTES;
+        for (int i = 0; i < ID_BYTES; i++) {
+            int cmp = Integer.compare(_data.get(at + i) & 0xff, key[i] & 0xff);
+            if (cmp != 0) {
+                return cmp;
+            }
+        }
+        return 0;
+    }
+
+    /** Getter method for the id of the commit at INDEX.
+     * @return id **/
+    String id(int index) {
+        byte[] id = new byte[ID_BYTES];
+        ByteBuffer data = _data.duplicate();
+        data.position(HEADER + index * ID_BYTES);
+        data.get(id);
+        return PackFile.toHex(id);
+    }
+
+    /** Returns the offset of the record of the commit at INDEX. **/
+    private int record(int index) {
+        return HEADER + _count * ID_BYTES + index * RECORD;
+    }
+
+    /** Getter method for the indexes of the parents of the commit at
+     *  INDEX.
+     * @return indexes, first parent first **/
+    int[] parents(int index) {
+        int first = _data.getInt(record(index));
+        int second = _data.getInt(record(index) + 4);
+        if (first < 0) {
+            return new int[0];
+        } else if (second < 0) {
+            return new int[] {first};
+        }
+        return new int[] {first, second};
+    }
+
+    /** Getter method for the ids of the parents of the commit at INDEX.
+     * @return ids, first parent first **/
+    List<String> parentIds(int index) {
+        List<String> ids = new ArrayList<>();
+        for (int parent: parents(index)) {
+            ids.add(id(parent));
+        }
+        return ids;
+    }
+
+    /** Getter method for the generation of the commit at INDEX.
+     * @return generation **/
+    int generation(int index) {
+        return _data.getInt(record(index) + 8);
+    }
+
+    /** Getter method for the time of the commit at INDEX.
+     * @return milliseconds since the epoch **/
+    long timestamp(int index) {
+        return _data.getLong(record(index) + 12);
+    }
+
+    /** Writes to FILE the graph of the commits OLD covers, if it is not
+     *  null, and of the commits ADDED, which it does not cover, listed so
+     *  that parents come before their children and read with COMMITS.
+     *  The ids of OLD are already sorted, so only ADDED is sorted, and
+     *  the two are merged, the records of OLD being copied with their
+     *  parents renumbered; nothing is kept per commit of OLD but its new
+     *  index. **/
+    static void write(File file, CommitGraph old, List<String> added,
+                      Function<String, Commit> commits) {
+        int oldCount = old == null ? 0 : old._count;
+        String[] sorted = added.toArray(new String[0]);
+        Arrays.sort(sorted);
+        int count = sorted.length;
+        byte[][] keys = new byte[count][];
+        for (int j = 0; j < count; j++) {
+            keys[j] = PackFile.toBytes(sorted[j]);
+        }
+
+        String[][] parents = new String[count][];
+        int[] generations = new int[count];
+        long[] times = new long[count];
+        for (String id: added) {
+            int j = Arrays.binarySearch(sorted, id);
+            Commit c = commits.apply(id);
+            parents[j] = c.getParents().toArray(new String[0]);
+            times[j] = c.getTimestamp().getTime();
+            generations[j] = 1;
+            for (String parent: parents[j]) {
+                int at = Arrays.binarySearch(sorted, parent);
+                int generation = at >= 0 ? generations[at]
+                    : old.generation(covering(old, parent));
+                generations[j] = Math.max(generations[j], generation + 1);
+            }
+        }
+
+        int[] oldIndexes = new int[oldCount];
+        int[] newIndexes = new int[count];
+        for (int i = 0, j = 0; i < oldCount || j < count;) {
+            if (j == count
+                    || (i < oldCount && old.compare(i, keys[j]) < 0)) {
+                oldIndexes[i] = i + j;
+                i += 1;
+            } else {
+                newIndexes[j] = i + j;
+                j += 1;
+            }
+        }
+
+        File temp = new File(file.getPath() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(
+                new BufferedOutputStream(Files.newOutputStream(
+                        temp.toPath()), ObjectStore.BUFFER_SIZE))) {
+            out.write("GGRF".getBytes(StandardCharsets.US_ASCII));
+            out.writeInt(VERSION);
+            out.writeInt(oldCount + count);
+            int[] fanout = new int[256];
+            for (byte[] key: keys) {
+                fanout[key[0] & 0xff] += 1;
+            }
+            for (int b = 0, total = 0; b < 256; b++) {
+                total += fanout[b];
+                out.writeInt(total + (old == null ? 0 : old._fanout[b]));
+            }
+            byte[] id = new byte[ID_BYTES];
+            for (int i = 0, j = 0; i < oldCount || j < count;) {
+                if (i < oldCount && oldIndexes[i] == i + j) {
+                    old._data.get(HEADER + i * ID_BYTES, id);
+                    out.write(id);
+                    i += 1;
+                } else {
+                    out.write(keys[j]);
+                    j += 1;
+                }
+            }
+            for (int i = 0, j = 0; i < oldCount || j < count;) {
+                if (i < oldCount && oldIndexes[i] == i + j) {
+                    int at = old.record(i);
+                    for (int k = 0; k < 2; k++) {
+                        int parent = old._data.getInt(at + 4 * k);
+                        out.writeInt(parent < 0 ? -1 : oldIndexes[parent]);
+                    }
+                    out.writeInt(old.generation(i));
+                    out.writeLong(old.timestamp(i));
+                    i += 1;
+                } else {
+                    for (int k = 0; k < 2; k++) {
+                        if (k >= parents[j].length) {
+                            out.writeInt(-1);
+                            continue;
+                        }
+                        int at = Arrays.binarySearch(sorted, parents[j][k]);
+                        out.writeInt(at >= 0 ? newIndexes[at]
+                                : oldIndexes[covering(old, parents[j][k])]);
+                    }
+                    out.writeInt(generations[j]);
+                    out.writeLong(times[j]);
+                    j += 1;
+                }
+            }
+        } catch (IOException excp) {
+            temp.delete();
+            throw new IllegalArgumentException(excp.getMessage());
+        }
+        try {
+            Files.move(temp.toPath(), file.toPath(),
+                    StandardCopyOption.REPLACE_EXISTING,
+                    StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException excp) {
+            temp.delete();
+            throw new IllegalArgumentException(excp.getMessage());
+        }
+    }
+
+    /** Returns the index in GRAPH, which may be null, of commit ID,
+     *  which it must cover. **/
+    private static int covering(CommitGraph graph, String id) {
+        int index = graph == null ? -1 : graph.find(id);
+        if (index < 0) {
+            throw new IllegalArgumentException("commit graph lacks " + id);
+        }
+        return index;
+    }
+}
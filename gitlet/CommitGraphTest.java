@@ -0,0 +1,131 @@
+package gitlet;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+
+/** Tests of the commit graph.
+ *  @author tomzheng
+ */
+public class CommitGraphTest {
+
+    /** Commits made so far, by id. */
+    private final HashMap<String, Commit> _commits = new HashMap<>();
+
+    /** Ids of the commits made so far, in order. */
+    private final List<String> _ids = new ArrayList<>();
+
+    /** Makes a commit with PARENT and MERGED, either of which may be
+     *  null, and returns its id. */
+    private String commit(String parent, String merged) {
+        String tree = Utils.sha1("tree " + _ids.size());
+        Commit c = parent == null ? new Commit(tree)
+            : new Commit(tree, parent, merged, 0, "commit " + _ids.size());
+        _commits.put(c.getHash(), c);
+        _ids.add(c.getHash());
+        return c.getHash();
+    }
+
+    @Test
+    public void recordsParentsAndGenerations() throws IOException {
+        String a = commit(null, null);
+        String b = commit(a, null);
+        String c = commit(a, null);
+        String m = commit(b, c);
+        File file = new File(ObjectStoreTest.tempDir(), "commit-graph");
+        CommitGraph.write(file, null, _ids, _commits::get);
+        CommitGraph graph = CommitGraph.open(file);
+        assertEquals(4, graph.size());
+        assertEquals(-1, graph.find(Utils.sha1("nothing")));
+        int i = graph.find(m);
+        assertEquals(m, graph.id(i));
+        assertEquals(Arrays.asList(b, c), graph.parentIds(i));
+        assertEquals(3, graph.generation(i));
+        assertEquals(1, graph.generation(graph.find(a)));
+        assertEquals(0, graph.parents(graph.find(a)).length);
+        assertEquals(_commits.get(b).getTimestamp().getTime(),
+                graph.timestamp(graph.find(b)));
+    }
+
+    @Test
+    public void rewritingReusesTheOldGraph() throws IOException {
+        String a = commit(null, null);
+        String b = commit(a, null);
+        File file = new File(ObjectStoreTest.tempDir(), "commit-graph");
+        CommitGraph.write(file, null, _ids, _commits::get);
+        CommitGraph old = CommitGraph.open(file);
+        String c = commit(b, null);
+        _commits.remove(a);
+        _commits.remove(b);
+        CommitGraph.write(file, old, _ids.subList(2, 3), _commits::get);
+        CommitGraph graph = CommitGraph.open(file);
+        assertEquals(3, graph.size());
+        assertEquals(Arrays.asList(a), graph.parentIds(graph.find(b)));
+        assertEquals(3, graph.generation(graph.find(c)));
+    }
+
+    @Test
+    public void mergingMatchesWritingAnew() throws IOException {
+        String root = commit(null, null);
+        List<String> tips = new ArrayList<>(Arrays.asList(root, root));
+        for (int i = 0; i < 60; i++) {
+            int side = i % 2;
+            String merged = i % 7 == 6 ? tips.get(1 - side) : null;
+            tips.set(side, commit(tips.get(side), merged));
+        }
+        File dir = ObjectStoreTest.tempDir();
+        File merged = new File(dir, "merged");
+        CommitGraph.write(merged, null, _ids.subList(0, 25), _commits::get);
+        CommitGraph.write(merged, CommitGraph.open(merged),
+                _ids.subList(25, _ids.size()), _commits::get);
+        File anew = new File(dir, "anew");
+        CommitGraph.write(anew, null, _ids, _commits::get);
+        assertArrayEquals(Utils.readContents(anew),
+                Utils.readContents(merged));
+        CommitGraph graph = CommitGraph.open(merged);
+        for (String id: _ids) {
+            int i = graph.find(id);
+            assertEquals(id, graph.id(i));
+            assertEquals(_commits.get(id).getParents(), graph.parentIds(i));
+        }
+    }
+
+    @Test
+    public void findsIdsByPrefix() throws IOException {
+        String a = commit(null, null);
+        for (int i = 0; i < 50; i++) {
+            commit(a, null);
+        }
+        File file = new File(ObjectStoreTest.tempDir(), "commit-graph");
+        CommitGraph.write(file, null, _ids, _commits::get);
+        CommitGraph graph = CommitGraph.open(file);
+        for (String id: _ids) {
+            assertEquals(Arrays.asList(id), graph.withPrefix(id, 2));
+            assertEquals(Arrays.asList(id),
+                    graph.withPrefix(id.substring(0, 8), 2));
+        }
+        assertEquals(2, graph.withPrefix("", 2).size());
+        assertEquals(51, graph.withPrefix("", 100).size());
+        String x = a.substring(0, 1);
+        int expected = 0;
+        for (String id: _ids) {
+            expected += id.startsWith(x) ? 1 : 0;
+        }
+        assertEquals(expected, graph.withPrefix(x, 100).size());
+        assertTrue(graph.withPrefix("fffffffffffff", 2).isEmpty());
+    }
+
+    @Test
+    public void ignoresOtherFiles() throws IOException {
+        File file = new File(ObjectStoreTest.tempDir(), "commit-graph");
+        assertNull(CommitGraph.open(file));
+        Utils.writeContents(file, "not a graph");
+        assertNull(CommitGraph.open(file));
+    }
+}
@@ -0,0 +1,56 @@
+package gitlet;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/** Tests of the encoding of commits.
+ *  @author tomzheng
+ */
+public class CommitTest {
+
+    /** The hash of the empty tree. */
+    private static final String EMPTY = Utils.sha1("");
+
+    @Test
+    public void initialCommitHashIsFixed() {
+        Commit c = new Commit(EMPTY);
+        assertEquals("tree " + EMPTY + "\ntime 0\ngeneration 1\n\n"
+                + "initial commit",
+                new String(c.encode(), StandardCharsets.UTF_8));
+        assertEquals("751f7197c42ec28093f89fc1eb340f40de81bc6b",
+                c.getHash());
+    }
+
+    @Test
+    public void decodeUndoesEncode() {
+        Commit a = new Commit(EMPTY);
+        Commit b = new Commit(Utils.sha1("tree"), a.getHash(),
+                Utils.sha1("other"), 2, "two\nlines\n\nand a gap");
+        Commit c = Commit.decode(b.getHash(), b.encode());
+        assertEquals(b.getHash(), c.getHash());
+        assertEquals(b.getHash(), Utils.sha1(c.encode()));
+        assertEquals(Utils.sha1("tree"), c.getTreeHash());
+        assertEquals(Arrays.asList(a.getHash(), Utils.sha1("other")),
+                c.getParents());
+        assertEquals(b.getTimestamp(), c.getTimestamp());
+        assertEquals(2, c.getGeneration());
+        assertEquals("two\nlines\n\nand a gap", c.getMessage());
+    }
+
+    @Test
+    public void hashCoversParents() {
+        Commit a = new Commit(EMPTY);
+        Commit b = new Commit(Utils.sha1("tree"), a.getHash(), null, 2, "m");
+        Commit c = Commit.decode(null, b.encode());
+        String same = Utils.sha1(c.encode());
+        assertEquals(b.getHash(), same);
+        byte[] moved = new String(b.encode(), StandardCharsets.UTF_8)
+            .replace(a.getHash(), Utils.sha1("elsewhere"))
+            .getBytes(StandardCharsets.UTF_8);
+        assertNotEquals(same, Utils.sha1(moved));
+        assertNotEquals(same, Utils.sha1(Commit.decode(null, moved).encode()));
+    }
+}
@@ -0,0 +1,242 @@
+package gitlet;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+
+/** A process that keeps a repository loaded between commands, so that
+ *  a command costs neither starting a JVM nor reading metadata and
+ *  objects again. `gitlet daemon` serves the repository in the current
+ *  directory on the Unix-domain socket .gitlet/daemon.sock, one command
+ *  at a time, until `gitlet daemon stop`.
+ *
+ *  A request is the arguments of a command, each followed by a NUL
+ *  byte, after which the client shuts down its side of the connection.
+ *  The reply is the output of the command and then one byte, the status
+ *  the command would have exited with if run on its own: 0, or 1 if it
+ *  crashed, in which case the output ends with the stack trace. Then
+ *  the daemon closes the connection. Main passes every command to a
+ *  running daemon this way, and any client that can write to a socket
+ *  will do:
+ *
+ *      printf 'status\0' | nc -UN .gitlet/daemon.sock
+ *
+ *  Before each command the daemon compares the stats of the files of
+ *  .gitlet with those it saw after the last one, and loads the
+ *  repository again if anything else has changed them. It also does so
+ *  after a command that crashes, which may leave changes that were
+ *  never saved; one that fails with an error changes nothing.
+ *
+ * @author tomzheng
+ */
+class Daemon {
+
+    /** Name of the socket, in .gitlet. **/
+    static final String SOCKET = "daemon.sock";
+
+    /** Exit status of a command that crashed. **/
+    static final int CRASHED = 1;
+
+    /** The working directory of the repository. **/
+    private final File _dir;
+
+    /** The directories whose files are compared between commands. **/
+    private final File[] _watched;
+
+    /** The socket. **/
+    private final Path _socket;
+
+    /** The repository, or null if it must be opened again. **/
+    private Gitlet _gitlet;
+
+    /** Stats of the watched files after the last command, by path. **/
+    private HashMap<String, FileStat> _stamp;
+
+    /** Whether to stop after the current command. **/
+    private boolean _stopping;
+
+    /** Constructor for the daemon of the repository in DIR. **/
+    Daemon(File dir) {
+        _dir = dir;
+        File folder = Utils.join(dir, ".gitlet");
+        _watched = new File[] {folder, Utils.join(folder, "refs", "heads"),
+                               Utils.join(folder, "objects", "pack")};
+        _socket = socket(dir);
+    }
+
+    /** Returns the socket of the daemon of the repository in DIR. **/
+    private static Path socket(File dir) {
+        return Utils.join(dir, ".gitlet", SOCKET).toPath();
+    }
+
+    /** Runs the command ARGS in the daemon serving the repository in
+     *  DIR, if one is running, copying its output to OUT.
+     * @return the exit status of the command, or -1 if there is no
+     *  daemon **/
+    static int forward(File dir, String[] args, OutputStream out) {
+        Path socket = socket(dir);
+        if (!Files.exists(socket)) {
+            return -1;
+        }
+        try (SocketChannel channel =
+                 SocketChannel.open(StandardProtocolFamily.UNIX)) {
+            try {
+                channel.connect(UnixDomainSocketAddress.of(socket));
+            } catch (IOException excp) {
+                return -1;
+            }
+            channel.write(ByteBuffer.wrap(request(args)));
+            channel.shutdownOutput();
+            InputStream in = Channels.newInputStream(channel);
+            byte[] buffer = new byte[ObjectStore.BUFFER_SIZE];
+            int status = CRASHED;
+            int held = 0;
+            for (int n = in.read(buffer, held, buffer.length - held); n > 0;
+                 n = in.read(buffer, held, buffer.length - held)) {
+                held += n;
+                out.write(buffer, 0, held - 1);
+                buffer[0] = buffer[held - 1];
+                held = 1;
+            }
+            if (held == 1) {
+                status = buffer[0];
+            }
+            out.flush();
+            return status;
+        } catch (IOException excp) {
+            throw new IllegalArgumentException(excp.getMessage());
+        }
+    }
+
+    /** Returns the request for the command ARGS. **/
+    static byte[] request(String... args) {
+        ByteArrayOutputStream request = new ByteArrayOutputStream();
+        for (String arg : args) {
+            request.writeBytes(arg.getBytes(StandardCharsets.UTF_8));
+            request.write(0);
+        }
+        return request.toByteArray();
+    }
+
+    /** Returns the arguments of the command in REQUEST. **/
+    static String[] arguments(byte[] request) {
+        List<String> args = new ArrayList<>();
+        int start = 0;
+        for (int i = 0; i < request.length; i++) {
+            if (request[i] == 0) {
+                args.add(new String(request, start, i - start,
+                        StandardCharsets.UTF_8));
+                start = i + 1;
+            }
+        }
+        return args.toArray(new String[0]);
+    }
+
+    /** Serves commands until told to stop, then removes the socket. A
+     *  socket left by a daemon that did not stop is replaced. **/
+    void serve() {
+        Thread cleanup = new Thread(this::removeSocket);
+        Runtime.getRuntime().addShutdownHook(cleanup);
+        try (ServerSocketChannel server =
+                 ServerSocketChannel.open(StandardProtocolFamily.UNIX)) {
+            Files.deleteIfExists(_socket);
+            server.bind(UnixDomainSocketAddress.of(_socket));
+            while (!_stopping) {
+                SocketChannel client = server.accept();
+                try (client) {
+                    serve(client);
+                } catch (IOException excp) {
+                    excp.printStackTrace();
+                }
+            }
+        } catch (IOException excp) {
+            throw new IllegalArgumentException(excp.getMessage());
+        } finally {
+            removeSocket();
+            Runtime.getRuntime().removeShutdownHook(cleanup);
+        }
+    }
+
+    /** Runs the command sent by CLIENT and replies with its output. **/
+    private void serve(SocketChannel client) throws IOException {
+        InputStream in = Channels.newInputStream(client);
+        String[] args = arguments(in.readAllBytes());
+        PrintStream out = new PrintStream(new BufferedOutputStream(
+                Channels.newOutputStream(client), ObjectStore.BUFFER_SIZE));
+        int status = 0;
+        if (args.length > 0 && args[0].equals("daemon")) {
+            if (args.length == 2 && args[1].equals("stop")) {
+                _stopping = true;
+            } else {
+                out.println("A daemon is already running.");
+            }
+        } else {
+            status = run(args, out);
+        }
+        out.write(status);
+        out.flush();
+    }
+
+    /** Runs the command ARGS, writing its output to OUT, and the stack
+     *  trace of the exception if it crashes.
+     * @return its exit status **/
+    private int run(String[] args, PrintStream out) {
+        if (_gitlet != null && !stamp().equals(_stamp)) {
+            _gitlet = null;
+        }
+        int status = 0;
+        try {
+            _gitlet = Main.run(_dir, _gitlet, out, args);
+        } catch (RuntimeException excp) {
+            _gitlet = null;
+            excp.printStackTrace(out);
+            status = CRASHED;
+        }
+        _stamp = stamp();
+        return status;
+    }
+
+    /** Returns the stats of the files in the watched directories. **/
+    private HashMap<String, FileStat> stamp() {
+        HashMap<String, FileStat> stamp = new HashMap<>();
+        for (File dir : _watched) {
+            String[] names = dir.list();
+            if (names == null) {
+                continue;
+            }
+            for (String name : names) {
+                File file = Utils.join(dir, name);
+                FileStat stat = FileStat.of(file);
+                if (stat != null) {
+                    stamp.put(file.getPath(), stat);
+                }
+            }
+        }
+        return stamp;
+    }
+
+    /** Removes the socket. **/
+    private void removeSocket() {
+        try {
+            Files.deleteIfExists(_socket);
+        } catch (IOException excp) {
+            excp.printStackTrace();
+        }
+    }
+}
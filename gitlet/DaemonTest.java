@@ -0,0 +1,76 @@
+package gitlet;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+
+/** Tests of the daemon.
+ *  @author tomzheng
+ */
+public class DaemonTest {
+
+    /** Working directory of the repository served. */
+    private File _dir;
+
+    /** Returns the output of the command ARGS, run by the daemon. */
+    private String run(String... args) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        assertEquals(0, Daemon.forward(_dir, args, out));
+        return out.toString();
+    }
+
+    @Test
+    public void encodesArguments() {
+        String[] args = {"commit", "two words", "", "\u00fcn\u00ef"};
+        assertArrayEquals(args, Daemon.arguments(Daemon.request(args)));
+        assertEquals(0, Daemon.arguments(Daemon.request()).length);
+    }
+
+    @Test
+    public void servesCommands() throws IOException, InterruptedException {
+        _dir = ObjectStoreTest.tempDir();
+        Repository.init(_dir);
+        File socket = Utils.join(_dir, ".gitlet", Daemon.SOCKET);
+        assertEquals(-1, Daemon.forward(_dir, new String[] {"status"},
+                new ByteArrayOutputStream()));
+        Thread daemon = new Thread(() -> new Daemon(_dir).serve());
+        daemon.start();
+        for (int i = 0; i < 500 && Daemon.forward(_dir,
+                 new String[] {"status"}, new ByteArrayOutputStream()) < 0;
+             i++) {
+            Thread.sleep(10);
+        }
+        Utils.writeContents(Utils.join(_dir, "a.txt"), "wug\n");
+        assertEquals("", run("add", "a.txt"));
+        assertEquals("", run("commit", "first"));
+        assertTrue(run("log").contains("\nfirst\n"));
+        assertEquals("No such branch exists\n", run("checkout", "nosuch"));
+        assertEquals("A daemon is already running.\n", run("daemon"));
+
+        Repository other = Repository.load(_dir);
+        other.makeBranch("other");
+        other.save();
+        assertTrue(run("status").startsWith(
+                "=== Branches ===\n*master\nother\n"));
+
+        File index = Utils.join(_dir, ".gitlet", "index");
+        byte[] saved = Utils.readContents(index);
+        Utils.writeContents(index, "not an index");
+        ByteArrayOutputStream crash = new ByteArrayOutputStream();
+        assertEquals(Daemon.CRASHED, Daemon.forward(_dir,
+                new String[] {"status"}, crash));
+        assertTrue(crash.toString().contains("IllegalArgumentException"));
+        Utils.writeContents(index, saved);
+        assertTrue(run("status").startsWith("=== Branches ==="));
+
+        assertEquals("", run("daemon", "stop"));
+        daemon.join(5000);
+        assertFalse(daemon.isAlive());
+        assertFalse(socket.exists());
+        Repository after = Repository.load(_dir);
+        assertEquals(2, after.getBranches().size());
+    }
+}
@@ -0,0 +1,182 @@
+package gitlet;
+
+import java.io.ByteArrayOutputStream;
+
+/** Binary deltas between two versions of a file. A delta starts with
+ *  the lengths of the base and of the result, followed by a sequence
+ *  of instructions: INSERT LENGTH BYTES... copies the literal bytes
+ *  into the result, and COPY OFFSET LENGTH copies a range of the base.
+ *  All numbers are unsigned variable-length integers.
+ *
+ * @author tomzheng
+ */
+final class Delta {
+
+    /** Instruction inserting literal bytes. **/
+    private static final int INSERT = 0;
+
+    /** Instruction copying a range of the base. **/
+    private static final int COPY = 1;
+
+    /** Length of the blocks of the base that are indexed. **/
+    private static final int BLOCK = 16;
+
+    /** Multiplier of the rolling hash. **/
+    private static final int PRIME = 31;
+
+    /** PRIME raised to the power BLOCK - 1. **/
+    private static final int TOP_POWER;
+
+    static {
+        int p = 1;
+        for (int i = 1; i < BLOCK; i++) {
+            p *= PRIME;
+        }
+        TOP_POWER = p;
+    }
+
+    /** Not instantiable. **/
+    private Delta() {
+    }
+
+    /** Returns a delta turning BASE into TARGET. **/
+    static byte[] create(byte[] base, byte[] target) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        writeVarint(out, base.length);
+        writeVarint(out, target.length);
+        if (base.length < BLOCK || target.length < BLOCK) {
+            insert(out, target, 0, target.length);
+            return out.toByteArray();
+        }
+        int blocks = base.length / BLOCK;
+        int mask = Integer.highestOneBit(blocks * 2 - 1) * 2 - 1;
+        int[] table = new int[mask + 1];
+        for (int b = blocks - 1; b >= 0; b--) {
+            table[hash(base, b * BLOCK) & mask] = b * BLOCK + 1;
+        }
+        int pending = 0;
+        int i = 0;
+        int h = hash(target, 0);
+        while (i + BLOCK <= target.length) {
+            int candidate = table[h & mask] - 1;
+            if (candidate >= 0
+                    && matches(base, candidate, target, i, BLOCK)) {
+                int start = i;
+                int from = candidate;
+                while (start > pending && from > 0
+                        && base[from - 1] == target[start - 1]) {
+                    start -= 1;
+                    from -= 1;
+                }
+                int end = i + BLOCK;
+                int baseEnd = candidate + BLOCK;
+                while (end < target.length && baseEnd < base.length
+                        && base[baseEnd] == target[end]) {
+                    end += 1;
+                    baseEnd += 1;
+                }
+                insert(out, target, pending, start - pending);
+                out.write(COPY);
+                writeVarint(out, from);
+                writeVarint(out, end - start);
+                pending = end;
+                i = end;
+                if (i + BLOCK <= target.length) {
+                    h = hash(target, i);
+                }
+            } else {
+                if (i + BLOCK < target.length) {
+                    h = (h - target[i] * TOP_POWER) * PRIME
+                            + target[i + BLOCK];
+                }
+                i += 1;
+            }
+        }
+        insert(out, target, pending, target.length - pending);
+        return out.toByteArray();
+    }
+
+    /** Returns the result of applying DELTA to BASE. **/
+    static byte[] apply(byte[] base, byte[] delta) {
+        int[] pos = new int[1];
+        if (readVarint(delta, pos) != base.length) {
+            throw new IllegalArgumentException("delta base length mismatch");
+        }
+        byte[] result = new byte[(int) readVarint(delta, pos)];
+        int n = 0;
+        while (pos[0] < delta.length) {
+            int op = delta[pos[0]++];
+            if (op == INSERT) {
+                int len = (int) readVarint(delta, pos);
+                System.arraycopy(delta, pos[0], result, n, len);
+                pos[0] += len;
+                n += len;
+            } else {
+                int from = (int) readVarint(delta, pos);
+                int len = (int) readVarint(delta, pos);
+                System.arraycopy(base, from, result, n, len);
+                n += len;
+            }
+        }
+        if (n != result.length) {
+            throw new IllegalArgumentException("corrupt delta");
+        }
+        return result;
+    }
+
+    /** Writes an instruction inserting the LEN bytes of DATA at START
+     *  to OUT, unless LEN is zero. **/
+    private static void insert(ByteArrayOutputStream out, byte[] data,
+                               int start, int len) {
+        if (len > 0) {
+            out.write(INSERT);
+            writeVarint(out, len);
+            out.write(data, start, len);
+        }
+    }
+
+    /** Returns the hash of the BLOCK bytes of DATA starting at START. **/
+    private static int hash(byte[] data, int start) {
+        int h = 0;
+        for (int i = start; i < start + BLOCK; i++) {
+            h = h * PRIME + data[i];
+        }
+        return h;
+    }
+
+    /** Checks whether the LEN bytes of A at I equal those of B at J.
+     * @return boolean **/
+    private static boolean matches(byte[] a, int i, byte[] b, int j,
+                                   int len) {
+        for (int k = 0; k < len; k++) {
+            if (a[i + k] != b[j + k]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /** Writes VALUE to OUT seven bits at a time, low bits first. **/
+    static void writeVarint(ByteArrayOutputStream out, long value) {
+        while ((value & ~0x7fL) != 0) {
+            out.write((int) ((value & 0x7f) | 0x80));
+            value >>>= 7;
+        }
+        out.write((int) value);
+    }
+
+    /** Reads a number written by writeVarint from DATA at POS[0],
+     *  advancing POS[0] past it.
+     * @return value **/
+    static long readVarint(byte[] data, int[] pos) {
+        long value = 0;
+        int shift = 0;
+        int b;
+        do {
+            b = data[pos[0]++] & 0xff;
+            value |= (long) (b & 0x7f) << shift;
+            shift += 7;
+        } while ((b & 0x80) != 0);
+        return value;
+    }
+}
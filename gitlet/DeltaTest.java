@@ -0,0 +1,62 @@
+package gitlet;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+
+/** Tests of binary deltas.
+ *  @author tomzheng
+ */
+public class DeltaTest {
+
+    /** Checks that the delta from BASE to TARGET reproduces TARGET. */
+    private static byte[] roundTrip(byte[] base, byte[] target) {
+        byte[] delta = Delta.create(base, target);
+        assertArrayEquals(target, Delta.apply(base, delta));
+        return delta;
+    }
+
+    @Test
+    public void smallInputs() {
+        byte[] empty = new byte[0];
+        byte[] wug = "This is a wug.\n".getBytes(StandardCharsets.UTF_8);
+        roundTrip(empty, empty);
+        roundTrip(empty, wug);
+        roundTrip(wug, empty);
+        roundTrip(wug, wug);
+    }
+
+    @Test
+    public void smallEditsGiveSmallDeltas() {
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < 10000; i++) {
+            text.append("line ").append(i).append('\n');
+        }
+        byte[] base = text.toString().getBytes(StandardCharsets.UTF_8);
+        text.insert(5000, "an inserted line\n");
+        text.replace(40000, 40010, "replaced");
+        text.append("the end\n");
+        byte[] target = text.toString().getBytes(StandardCharsets.UTF_8);
+        byte[] delta = roundTrip(base, target);
+        assertTrue(delta.length < 200);
+    }
+
+    @Test
+    public void randomData() {
+        Random random = new Random(61);
+        for (int trial = 0; trial < 50; trial++) {
+            byte[] base = new byte[random.nextInt(5000)];
+            random.nextBytes(base);
+            byte[] target = base.clone();
+            for (int k = 0; k < 5 && target.length > 0; k++) {
+                target[random.nextInt(target.length)] ^= 1;
+            }
+            roundTrip(base, target);
+            byte[] other = new byte[random.nextInt(5000)];
+            random.nextBytes(other);
+            roundTrip(base, other);
+        }
+    }
+}
@@ -0,0 +1,218 @@
+package gitlet;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+
+/** A shortest edit script between two sequences of lines, found with
+ *  Myers' algorithm in its linear-space form: the middle snake of the
+ *  edit graph is found by searching from both ends at once, and the
+ *  halves on either side of it are solved in turn. Lines are compared
+ *  as numbers, equal lines getting equal numbers, and lines common to
+ *  the start or end of a range are skipped before searching it.
+ *
+ * @author tomzheng
+ */
+final class Diff {
+
+    /** A range of lines of A, from AStart up to AEnd, replaced by the
+     *  lines of B from BStart up to BEnd. Either range may be empty. **/
+    static final class Hunk {
+
+        /** First line of A replaced. **/
+        final int aStart;
+
+        /** End of the lines of A replaced. **/
+        final int aEnd;
+
+        /** First line of B put in their place. **/
+        final int bStart;
+
+        /** End of the lines of B put in their place. **/
+        final int bEnd;
+
+        /** Constructor for the hunk replacing lines ASTART up to AEND of
+         *  A by lines BSTART up to BEND of B. **/
+        Hunk(int aStart, int aEnd, int bStart, int bEnd) {
+            this.aStart = aStart;
+            this.aEnd = aEnd;
+            this.bStart = bStart;
+            this.bEnd = bEnd;
+        }
+
+        @Override
+        public String toString() {
+            return aStart + "," + aEnd + ">" + bStart + "," + bEnd;
+        }
+    }
+
+    /** The lines of the first sequence, as numbers. **/
+    private final int[] _a;
+
+    /** The lines of the second sequence, as numbers. **/
+    private final int[] _b;
+
+    /** Lines of A that are not in B. **/
+    private final boolean[] _deleted;
+
+    /** Lines of B that are not in A. **/
+    private final boolean[] _inserted;
+
+    /** Constructor for the diff of A and B. **/
+    private Diff(int[] a, int[] b) {
+        _a = a;
+        _b = b;
+        _deleted = new boolean[a.length];
+        _inserted = new boolean[b.length];
+    }
+
+    /** Returns the hunks turning A into B, in order. **/
+    static List<Hunk> diff(int[] a, int[] b) {
+        Diff d = new Diff(a, b);
+        d.compare(0, a.length, 0, b.length);
+        return d.hunks();
+    }
+
+    /** Returns the hunks turning the lines A into the lines B, in
+     *  order. **/
+    static <T> List<Hunk> diff(List<T> a, List<T> b) {
+        HashMap<T, Integer> numbers = new HashMap<>();
+        return diff(number(a, numbers), number(b, numbers));
+    }
+
+    /** Returns LINES as numbers, giving lines that are not yet in
+     *  NUMBERS the next one. **/
+    static <T> int[] number(List<T> lines, HashMap<T, Integer> numbers) {
+        int[] result = new int[lines.size()];
+        for (int i = 0; i < result.length; i++) {
+            Integer n = numbers.putIfAbsent(lines.get(i), numbers.size());
+            result[i] = n == null ? numbers.size() - 1 : n;
+        }
+        return result;
+    }
+
+    /** Marks the differences between lines ALO up to AHI of A and lines
+     *  BLO up to BHI of B. **/
+    private void compare(int aLo, int aHi, int bLo, int bHi) {
+        while (aLo < aHi && bLo < bHi && _a[aLo] == _b[bLo]) {
+            aLo += 1;
+            bLo += 1;
+        }
+        while (aLo < aHi && bLo < bHi && _a[aHi - 1] == _b[bHi - 1]) {
+            aHi -= 1;
+            bHi -= 1;
+        }
+        if (aLo == aHi || bLo == bHi) {
+            Arrays.fill(_deleted, aLo, aHi, true);
+            Arrays.fill(_inserted, bLo, bHi, true);
+            return;
+        }
+        int[] split = middle(aLo, aHi, bLo, bHi);
+        if (split == null) {
+            Arrays.fill(_deleted, aLo, aHi, true);
+            Arrays.fill(_inserted, bLo, bHi, true);
+            return;
+        }
+        compare(aLo, split[0], bLo, split[1]);
+        compare(split[0], aHi, split[1], bHi);
+    }
+
+    /** Returns the point at which a shortest edit script between lines
+     *  ALO up to AHI of A and lines BLO up to BHI of B crosses the
+     *  middle, as indexes into A and B, or null if the two ranges have
+     *  nothing in common. The first and last lines of the ranges
+     *  differ. **/
+    private int[] middle(int aLo, int aHi, int bLo, int bHi) {
+        int n = aHi - aLo;
+        int m = bHi - bLo;
+        int maxD = (n + m + 1) / 2;
+        int offset = maxD;
+        int[] forward = new int[2 * maxD + 2];
+        int[] backward = new int[2 * maxD + 2];
+        Arrays.fill(forward, -1);
+        Arrays.fill(backward, -1);
+        forward[offset + 1] = 0;
+        backward[offset + 1] = 0;
+        int delta = n - m;
+        boolean odd = (delta & 1) != 0;
+        int fStart = 0, fEnd = 0, bStart = 0, bEnd = 0;
+        for (int d = 0; d < maxD; d++) {
+            for (int k = -d + fStart; k <= d - fEnd; k += 2) {
+                int at = offset + k;
+                int x = k == -d || (k != d && forward[at - 1] < forward[at + 1])
+                    ? forward[at + 1] : forward[at - 1] + 1;
+                int y = x - k;
+                while (x < n && y < m && _a[aLo + x] == _b[bLo + y]) {
+                    x += 1;
+                    y += 1;
+                }
+                forward[at] = x;
+                if (x > n) {
+                    fEnd += 2;
+                } else if (y > m) {
+                    fStart += 2;
+                } else if (odd) {
+                    int other = offset + delta - k;
+                    if (other >= 0 && other < forward.length
+                            && backward[other] != -1
+                            && x >= n - backward[other]) {
+                        return new int[] {aLo + x, bLo + y};
+                    }
+                }
+            }
+            for (int k = -d + bStart; k <= d - bEnd; k += 2) {
+                int at = offset + k;
+                int x = k == -d
+                    || (k != d && backward[at - 1] < backward[at + 1])
+                    ? backward[at + 1] : backward[at - 1] + 1;
+                int y = x - k;
+                while (x < n && y < m
+                       && _a[aHi - x - 1] == _b[bHi - y - 1]) {
+                    x += 1;
+                    y += 1;
+                }
+                backward[at] = x;
+                if (x > n) {
+                    bEnd += 2;
+                } else if (y > m) {
+                    bStart += 2;
+                } else if (!odd) {
+                    int other = offset + delta - k;
+                    if (other >= 0 && other < forward.length
+                            && forward[other] != -1) {
+                        int fx = forward[other];
+                        int fy = fx - (other - offset);
+                        if (fx >= n - x) {
+                            return new int[] {aLo + fx, bLo + fy};
+                        }
+                    }
+                }
+            }
+        }
+        return null;
+    }
+
+    /** Returns the hunks of the marked differences, in order. **/
+    private List<Hunk> hunks() {
+        List<Hunk> hunks = new ArrayList<>();
+        int i = 0, j = 0;
+        while (i < _a.length || j < _b.length) {
+            if (i < _a.length && j < _b.length
+                    && !_deleted[i] && !_inserted[j]) {
+                i += 1;
+                j += 1;
+                continue;
+            }
+            int aStart = i, bStart = j;
+            while (i < _a.length && _deleted[i]) {
+                i += 1;
+            }
+            while (j < _b.length && _inserted[j]) {
+                j += 1;
+            }
+            hunks.add(new Hunk(aStart, i, bStart, j));
+        }
+        return hunks;
+    }
+}
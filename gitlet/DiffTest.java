@@ -0,0 +1,78 @@
+package gitlet;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+/** Tests of the line diff.
+ *  @author tomzheng
+ */
+public class DiffTest {
+
+    /** Returns the length of a longest common subsequence of A and B. */
+    private static int lcs(int[] a, int[] b) {
+        int[][] best = new int[a.length + 1][b.length + 1];
+        for (int i = 1; i <= a.length; i++) {
+            for (int j = 1; j <= b.length; j++) {
+                best[i][j] = a[i - 1] == b[j - 1] ? best[i - 1][j - 1] + 1
+                    : Math.max(best[i - 1][j], best[i][j - 1]);
+            }
+        }
+        return best[a.length][b.length];
+    }
+
+    /** Checks that HUNKS turn A into B with as few edits as possible. */
+    private static void check(int[] a, int[] b, List<Diff.Hunk> hunks) {
+        int[] result = new int[b.length];
+        int edits = 0, i = 0, j = 0;
+        for (Diff.Hunk h : hunks) {
+            assertTrue(h.aStart >= i && h.aEnd >= h.aStart);
+            while (i < h.aStart) {
+                result[j++] = a[i++];
+            }
+            assertEquals(j, h.bStart);
+            for (int k = h.bStart; k < h.bEnd; k++) {
+                result[j++] = b[k];
+            }
+            edits += (h.aEnd - h.aStart) + (h.bEnd - h.bStart);
+            i = h.aEnd;
+        }
+        while (i < a.length) {
+            result[j++] = a[i++];
+        }
+        assertArrayEquals(b, result);
+        assertEquals(a.length + b.length - 2 * lcs(a, b), edits);
+    }
+
+    @Test
+    public void findsShortestEdits() {
+        Random random = new Random(20);
+        for (int trial = 0; trial < 2000; trial++) {
+            int[] a = new int[random.nextInt(30)];
+            int[] b = new int[random.nextInt(30)];
+            int alphabet = 1 + random.nextInt(6);
+            for (int i = 0; i < a.length; i++) {
+                a[i] = random.nextInt(alphabet);
+            }
+            for (int i = 0; i < b.length; i++) {
+                b[i] = random.nextInt(alphabet);
+            }
+            check(a, b, Diff.diff(a, b));
+        }
+    }
+
+    @Test
+    public void diffsLines() {
+        List<Diff.Hunk> hunks = Diff.diff(
+                Arrays.asList("a\n", "b\n", "c\n", "d\n"),
+                Arrays.asList("a\n", "x\n", "c\n", "d\n", "e\n"));
+        assertEquals(2, hunks.size());
+        assertEquals("1,2>1,2", hunks.get(0).toString());
+        assertEquals("4,4>4,5", hunks.get(1).toString());
+        assertTrue(Diff.diff(Arrays.asList("a\n"),
+                Arrays.asList("a\n")).isEmpty());
+    }
+}
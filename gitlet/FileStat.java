@@ -0,0 +1,90 @@
+package gitlet;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Serializable;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.concurrent.TimeUnit;
+
+/** The size, modification time and inode of a working file, as recorded
+ *  in the staging area, so that unchanged files need not be re-hashed.
+ *
+ * @author tomzheng
+ */
+class FileStat implements Serializable {
+
+    /** Pinned, so that written indexes stay readable. **/
+    private static final long serialVersionUID = -5679114484571172843L;
+
+    /** Size in bytes. **/
+    private final long _size;
+
+    /** Modification time in nanoseconds, as precise as the file system
+     *  allows. **/
+    private final long _mtime;
+
+    /** Hash of the device and inode numbers, or 0 where the file
+     *  system has none. **/
+    private final long _inode;
+
+    /** Constructor for a stat of SIZE bytes, MTIME and INODE. **/
+    FileStat(long size, long mtime, long inode) {
+        _size = size;
+        _mtime = mtime;
+        _inode = inode;
+    }
+
+    /** Reads the stat of FILE.
+     * @return stat, or null if FILE does not exist **/
+    static FileStat of(File file) {
+        Path path = file.toPath();
+        try {
+            BasicFileAttributes attrs =
+                Files.readAttributes(path, BasicFileAttributes.class);
+            if (!attrs.isRegularFile()) {
+                return null;
+            }
+            Object key = attrs.fileKey();
+            long inode = key == null ? 0 : key.hashCode();
+            return new FileStat(attrs.size(),
+                    attrs.lastModifiedTime().to(TimeUnit.NANOSECONDS), inode);
+        } catch (IOException excp) {
+            return null;
+        }
+    }
+
+    /** Getter method for the size.
+     * @return bytes **/
+    long size() {
+        return _size;
+    }
+
+    /** Returns this stat with a size of 0, which marks a file that must
+     *  be hashed again. **/
+    FileStat smudged() {
+        return new FileStat(0, _mtime, _inode);
+    }
+
+    /** Getter method for the modification time.
+     * @return nanoseconds **/
+    long mtime() {
+        return _mtime;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (!(obj instanceof FileStat)) {
+            return false;
+        }
+        FileStat other = (FileStat) obj;
+        return _size == other._size && _mtime == other._mtime
+                && _inode == other._inode;
+    }
+
+    @Override
+    public int hashCode() {
+        return Long.hashCode(_size) * 31 + Long.hashCode(_mtime);
+    }
+}
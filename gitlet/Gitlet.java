@@ -0,0 +1,237 @@
+package gitlet;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.List;
+
+/** The commands of Gitlet on one repository, for programs that embed it
+ *  as well as for the command line (see Main). Nothing here prints or
+ *  exits: results are returned, or written to a given Writer, and
+ *  errors are thrown as GitletExceptions whose messages are those the
+ *  command line prints. A command that throws one leaves the repository
+ *  as it was.
+ *
+ *  Each command saves what it changed before returning, unless saving
+ *  is deferred with setAutoSave, in which case only objects and commits
+ *  are written until save is called. Paths are relative to the working
+ *  directory of the repository. A Gitlet must not be used by more than
+ *  one thread at a time, nor alongside another Gitlet on the same
+ *  repository.
+ *
+ * @author tomzheng
+ */
+public final class Gitlet {
+
+    /** The working directory. **/
+    private final File _dir;
+
+    /** The repository. **/
+    private final Repository _repo;
+
+    /** Whether each command saves what it changed. **/
+    private boolean _autoSave = true;
+
+    /** Constructor for the commands on REPO, whose working directory is
+     *  DIR. **/
+    private Gitlet(File dir, Repository repo) {
+        _dir = dir;
+        _repo = repo;
+    }
+
+    /** Creates a repository in DIR.
+     * @return its commands **/
+    public static Gitlet init(File dir) {
+        if (Repository.exists(dir)) {
+            throw new GitletException("A Gitlet version-control"
+                    +  " system already exists in the current directory");
+        }
+        Utils.join(dir, ".gitlet").mkdir();
+        return new Gitlet(dir, Repository.init(dir));
+    }
+
+    /** Opens the repository in DIR.
+     * @return its commands **/
+    public static Gitlet open(File dir) {
+        if (!Repository.exists(dir)) {
+            throw new GitletException(
+                    "Not in an initialized Gitlet directory.");
+        }
+        return new Gitlet(dir, Repository.load(dir));
+    }
+
+    /** Makes each command save what it changed if ON, as it does at
+     *  first, or leaves that to save if not. **/
+    public void setAutoSave(boolean on) {
+        _autoSave = on;
+    }
+
+    /** Writes out the branches, head and staging area as changed by
+     *  the commands so far. **/
+    public void save() {
+        _repo.save();
+    }
+
+    /** Saves, unless saving is deferred. **/
+    private void changed() {
+        if (_autoSave) {
+            _repo.save();
+        }
+    }
+
+    /** Stages the files PATHS, where a directory stands for every file
+     *  under it and "." for every file in the working directory. **/
+    public void add(String... paths) {
+        LinkedHashSet<String> files = new LinkedHashSet<>();
+        for (String path : paths) {
+            String name = fileName(path);
+            File f = name == null ? null : Utils.join(_dir, name);
+            if (f != null && f.isDirectory()) {
+                String dir = name.isEmpty() ? "" : name + "/";
+                for (String file: Utils.plainFilenamesUnder(f)) {
+                    files.add(dir + file);
+                }
+            } else if (f == null || !f.isFile()) {
+                throw new GitletException("File does not exist.");
+            } else {
+                files.add(name);
+            }
+        }
+        if (files.isEmpty()) {
+            return;
+        }
+        _repo.addFiles(new ArrayList<>(files));
+        changed();
+    }
+
+    /** Unstages the file PATH, deleting it if it is tracked. **/
+    public void rm(String path) {
+        String name = fileName(path);
+        _repo.removeFile(name == null ? path : name);
+        changed();
+    }
+
+    /** Commits the staged files with MESSAGE.
+     * @return the id of the new commit **/
+    public String commit(String message) {
+        _repo.createCommit(message);
+        changed();
+        return _repo.getHead();
+    }
+
+    /** Creates the branch NAME at the head commit. **/
+    public void branch(String name) {
+        _repo.makeBranch(name);
+        changed();
+    }
+
+    /** Removes the branch NAME. **/
+    public void removeBranch(String name) {
+        _repo.removeBranch(name);
+        changed();
+    }
+
+    /** Switches to the branch NAME. **/
+    public void checkout(String name) {
+        _repo.checkout(name);
+        changed();
+    }
+
+    /** Restores the file PATH as of the head commit. **/
+    public void checkoutFile(String path) {
+        String name = fileName(path);
+        _repo.resetFile(name == null ? path : name);
+        changed();
+    }
+
+    /** Restores the file PATH as of the commit whose id is or starts with
+     *  COMMIT. **/
+    public void checkoutFile(String commit, String path) {
+        String name = fileName(path);
+        _repo.resetFile(name == null ? path : name, _repo.uidToID(commit));
+        changed();
+    }
+
+    /** Moves the current branch to the commit whose id is or starts with
+     *  COMMIT, checking out its files. **/
+    public void reset(String commit) {
+        _repo.reset(_repo.uidToID(commit));
+        changed();
+    }
+
+    /** Merges the branch NAME into the current one.
+     * @return true if some file conflicts; its working copy then has
+     * the conflicts marked **/
+    public boolean merge(String name) {
+        boolean conflict = _repo.merge(name);
+        changed();
+        return conflict;
+    }
+
+    /** Compares the head commit, the staging area and the working
+     *  directory.
+     * @return status **/
+    public Status status() {
+        Status status = new Status(_repo);
+        changed();
+        return status;
+    }
+
+    /** Writes the history of the head commit to OUT, limited by
+     *  OPTIONS as the log command is. **/
+    public void log(Writer out, String... options) throws IOException {
+        new Log(out, options, 0).history(_repo);
+    }
+
+    /** Writes every commit to OUT, limited by OPTIONS as the log command
+     *  is. **/
+    public void globalLog(Writer out, String... options) throws IOException {
+        new Log(out, options, 0).global(_repo);
+    }
+
+    /** Finds the commits whose message is MESSAGE.
+     * @return ids **/
+    public List<String> find(String message) {
+        return _repo.findByMessage(message);
+    }
+
+    /** Finds the commits whose messages contain every one of WORDS.
+     * @return ids **/
+    public List<String> findWords(String... words) {
+        return _repo.findByWords(Arrays.asList(words));
+    }
+
+    /** Packs every object into one file. **/
+    public void gc() {
+        _repo.gc();
+    }
+
+    /** Getter method for the head commit.
+     * @return id **/
+    public String head() {
+        return _repo.getHead();
+    }
+
+    /** Getter method for the current branch.
+     * @return name **/
+    public String currentBranch() {
+        return _repo.getCurrentBranch();
+    }
+
+    /** Converts PATH into the name of a working file, relative to the
+     * working directory and with '/' between directories.
+     * @return name, "" for the working directory itself, or null if
+     * PATH lies outside it **/
+    private static String fileName(String path) {
+        Path p = Paths.get(path).normalize();
+        if (p.isAbsolute() || p.startsWith("..")) {
+            return null;
+        }
+        return p.toString().replace(File.separatorChar, '/');
+    }
+}
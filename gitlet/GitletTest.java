@@ -0,0 +1,123 @@
+package gitlet;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.nio.file.Files;
+import java.nio.file.attribute.FileTime;
+import java.util.Arrays;
+import java.util.Collections;
+
+/** Tests of the library interface.
+ *  @author tomzheng
+ */
+public class GitletTest {
+
+    @Test
+    public void runsCommandsInProcess() throws IOException {
+        File dir = ObjectStoreTest.tempDir();
+        Gitlet g = Gitlet.init(dir);
+        Utils.writeContents(Utils.join(dir, "f.txt"), "one\nmid\ntwo\n");
+        g.add("f.txt");
+        String first = g.commit("first");
+        assertEquals(first, g.head());
+        g.branch("other");
+        Utils.writeContents(Utils.join(dir, "f.txt"), "ONE\nmid\ntwo\n");
+        g.add("f.txt");
+        g.commit("master edit");
+        g.checkout("other");
+        assertEquals("one\nmid\ntwo\n",
+                Utils.readContentsAsString(Utils.join(dir, "f.txt")));
+        Utils.writeContents(Utils.join(dir, "f.txt"), "one\nmid\nTWO\n");
+        g.add(".");
+        g.commit("other edit");
+        g.checkout("master");
+        assertFalse(g.merge("other"));
+        assertEquals("ONE\nmid\nTWO\n",
+                Utils.readContentsAsString(Utils.join(dir, "f.txt")));
+
+        Status status = g.status();
+        assertEquals(Arrays.asList("master", "other"), status.getBranches());
+        assertEquals("master", status.getCurrentBranch());
+        assertTrue(status.getStaged().isEmpty());
+        assertTrue(status.getUnstaged().isEmpty());
+        assertEquals(Collections.singletonList(first), g.find("first"));
+
+        StringWriter log = new StringWriter();
+        g.log(log, "-n", "1");
+        assertTrue(log.toString().contains("Merged other into master."));
+        assertFalse(log.toString().contains("master edit"));
+    }
+
+    @Test
+    public void failuresChangeNothing() throws IOException {
+        File dir = ObjectStoreTest.tempDir();
+        Gitlet g = Gitlet.init(dir);
+        String head = g.head();
+        try {
+            g.commit("nothing");
+            fail();
+        } catch (GitletException excp) {
+            assertEquals("No changes added to the commit.",
+                    excp.getMessage());
+        }
+        try {
+            g.add("missing.txt");
+            fail();
+        } catch (GitletException excp) {
+            assertEquals("File does not exist.", excp.getMessage());
+        }
+        assertEquals(head, g.head());
+        try {
+            Gitlet.init(dir);
+            fail();
+        } catch (GitletException excp) {
+            assertEquals(head, Gitlet.open(dir).head());
+        }
+    }
+
+    @Test
+    public void defersSaving() throws IOException {
+        File dir = ObjectStoreTest.tempDir();
+        Gitlet g = Gitlet.init(dir);
+        g.setAutoSave(false);
+        g.branch("other");
+        assertEquals(1, Gitlet.open(dir).status().getBranches().size());
+        g.save();
+        assertEquals(2, Gitlet.open(dir).status().getBranches().size());
+    }
+
+    @Test
+    public void racyFileStaysModified()
+        throws IOException, InterruptedException {
+        File dir = ObjectStoreTest.tempDir();
+        File f = Utils.join(dir, "f.txt");
+        File other = Utils.join(dir, "g.txt");
+        Gitlet g = Gitlet.init(dir);
+        FileTime tick = FileTime.fromMillis(System.currentTimeMillis() + 500);
+        Utils.writeContents(f, "one\n");
+        Utils.writeContents(other, "other\n");
+        Files.setLastModifiedTime(f.toPath(), tick);
+        g.add("f.txt");
+        g.add("g.txt");
+        Utils.writeContents(f, "two\n");
+        Files.setLastModifiedTime(f.toPath(), tick);
+        while (System.currentTimeMillis() <= tick.toMillis() + 20) {
+            Thread.sleep(50);
+        }
+        Utils.writeContents(other, "other\n");
+        for (int run = 1; run <= 3; run++) {
+            assertEquals("status run " + run,
+                    Collections.singletonMap("f.txt", "modified"),
+                    Gitlet.open(dir).status().getUnstaged());
+        }
+    }
+
+    @Test(expected = GitletException.class)
+    public void openNeedsRepository() throws IOException {
+        Gitlet.open(ObjectStoreTest.tempDir());
+    }
+}
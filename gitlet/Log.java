@@ -0,0 +1,148 @@
+package gitlet;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeFormatterBuilder;
+import java.time.format.DateTimeParseException;
+import java.time.temporal.ChronoField;
+import java.util.List;
+
+/** Prints commits as log and global-log do, one at a time as they are
+ *  read, so that nothing is read past the last commit printed and
+ *  memory does not grow with the history. Commits may be limited in
+ *  number with -n COUNT and in time with --since DATE and --until
+ *  DATE, where DATE is yyyy-MM-dd, optionally followed by HH:mm or
+ *  HH:mm:ss, in local time. Commits are filtered by time using the
+ *  commit graph, so those left out are not read; those it does not
+ *  cover yet are read once and filtered as read.
+ *
+ * @author tomzheng
+ */
+class Log {
+
+    /** Number of ids read at a time by global-log. **/
+    private static final int CHUNK = 1024;
+
+    /** Format of the dates of options. **/
+    private static final DateTimeFormatter OPTION_DATE =
+        new DateTimeFormatterBuilder().appendPattern("yyyy-MM-dd[ HH:mm[:ss]]")
+            .parseDefaulting(ChronoField.HOUR_OF_DAY, 0)
+            .parseDefaulting(ChronoField.MINUTE_OF_HOUR, 0)
+            .parseDefaulting(ChronoField.SECOND_OF_MINUTE, 0)
+            .toFormatter();
+
+    /** Most commits to print. **/
+    private long _limit = Long.MAX_VALUE;
+
+    /** Earliest time of a commit to print, in milliseconds. **/
+    private long _since = Long.MIN_VALUE;
+
+    /** Latest time of a commit to print, in milliseconds. **/
+    private long _until = Long.MAX_VALUE;
+
+    /** Where the commits are written. **/
+    private final Writer _out;
+
+    /** Constructor for a log writing to OUT, limited by the options
+     *  ARGS, starting with the one numbered FROM. Throws a
+     *  GitletException for options it does not understand. **/
+    Log(Writer out, String[] args, int from) {
+        _out = out;
+        for (int i = from; i < args.length; i += 2) {
+            if (i + 1 == args.length) {
+                throw new GitletException("Incorrect operands.");
+            }
+            String value = args[i + 1];
+            try {
+                if (args[i].equals("-n")) {
+                    _limit = Long.parseLong(value);
+                    if (_limit < 0) {
+                        throw new NumberFormatException(value);
+                    }
+                } else if (args[i].equals("--since")) {
+                    _since = parseDate(value);
+                } else if (args[i].equals("--until")) {
+                    _until = parseDate(value);
+                } else {
+                    throw new GitletException("Incorrect operands.");
+                }
+            } catch (NumberFormatException | DateTimeParseException excp) {
+                throw new GitletException("Incorrect operands.");
+            }
+        }
+    }
+
+    /** Returns the time DATE, in milliseconds. **/
+    private static long parseDate(String date) {
+        return LocalDateTime.parse(date, OPTION_DATE)
+            .atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+
+    /** Prints the first parents of the head commit of R, newest first.
+     *  Since commits are made after their first parents, the walk stops
+     *  at the first commit older than --since. **/
+    void history(Repository r) throws IOException {
+        long printed = 0;
+        String id = r.getHead();
+        while (id != null && printed < _limit) {
+            Commit c = r.inGraph(id) ? null : r.readCommit(id);
+            long time = c == null ? r.getTime(id) : c.getTimestamp().getTime();
+            if (time < _since) {
+                break;
+            }
+            List<String> parents = c == null ? r.getParents(id)
+                : c.getParents();
+            if (time <= _until) {
+                write(c == null ? r.readCommit(id) : c, parents);
+                printed += 1;
+            }
+            id = parents.isEmpty() ? null : parents.get(0);
+        }
+        _out.flush();
+    }
+
+    /** Prints every commit of R, oldest first. **/
+    void global(Repository r) throws IOException {
+        long printed = 0;
+        for (int from = 0; printed < _limit; from += CHUNK) {
+            List<String> ids = r.getCommits(from, CHUNK);
+            for (int i = 0; i < ids.size() && printed < _limit; i++) {
+                String id = ids.get(i);
+                Commit c = r.inGraph(id) ? null : r.readCommit(id);
+                long time = c == null ? r.getTime(id)
+                    : c.getTimestamp().getTime();
+                if (time >= _since && time <= _until) {
+                    write(c == null ? r.readCommit(id) : c, null);
+                    printed += 1;
+                }
+            }
+            if (ids.size() < CHUNK) {
+                break;
+            }
+        }
+        _out.flush();
+    }
+
+    /** Writes the entry of commit C, whose parents are PARENTS, or
+     *  without a Merge line if PARENTS is null. **/
+    private void write(Commit c, List<String> parents) throws IOException {
+        _out.write("===\ncommit ");
+        _out.write(c.getHash());
+        _out.write('\n');
+        if (parents != null && parents.size() > 1) {
+            _out.write("Merge: ");
+            _out.write(parents.get(0), 0, 7);
+            _out.write(' ');
+            _out.write(parents.get(1), 0, 7);
+            _out.write('\n');
+        }
+        _out.write("Date: ");
+        _out.write(TimestampFormat.LOG.format(c.getTimestamp().getTime()));
+        _out.write('\n');
+        _out.write(c.getMessage());
+        _out.write("\n\n");
+    }
+}
@@ -1,379 +1,312 @@
 package gitlet;
 
+import java.io.BufferedOutputStream;
+import java.io.BufferedWriter;
 import java.io.File;
-import java.text.SimpleDateFormat;
+import java.io.FileNotFoundException;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.PrintStream;
+import java.io.Reader;
+import java.io.Writer;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
 
 /** Driver class for Gitlet, the tiny stupid version-control system.
+ *  It only parses the command line and prints results: the commands
+ *  themselves are those of Gitlet. A command may also be run in a
+ *  running process through run, which writes its output to a given
+ *  stream and returns instead of exiting.
  *  @author tomzheng
  */
 public class Main {
 
-    /** The repository. **/
-    private static Repository r;
-
-    /** The object directory. **/
-    private static File objectDirectory;
-
-    /** The working directory. **/
-    private static File workingDirectory;
-
-    /** The date pattern. **/
-    private static String pattern = "EEE MMM d HH:mm:ss yyyy Z";
-
-    /** The format of the date. **/
-    private static SimpleDateFormat logTime = new SimpleDateFormat(pattern);
-
     /** Usage: java gitlet.Main ARGS, where ARGS contains
-     *  <COMMAND> <OPERAND> .... */
+     *  [--trace[=json]] <COMMAND> <OPERAND> .... A command other than
+     *  batch is passed to the daemon serving the current directory, if
+     *  there is one, unless it is traced. A traced command, given
+     *  --trace or run while GITLET_TRACE is set (to json for JSON), ends
+     *  by printing what Trace recorded to the standard error. */
     public static void main(String... args) {
-        if (args.length < 1) {
-            System.out.println("Please enter a command.");
-            System.exit(0);
-        }
-        workingDirectory = new File(".");
-        objectDirectory = Utils.join(workingDirectory, ".gitlet");
-        if (args[0].equals("init")) {
-            init(args);
-        }
-        if (!Utils.join(objectDirectory, "Repository").exists()) {
-            System.out.println("Not in an initialized Gitlet directory.");
-            System.exit(0);
-        }
-        r = Utils.readObject(Utils.join(objectDirectory,
-                "Repository"), Repository.class);
-        if (args[0].equals("add")) {
-            add(args);
-            System.exit(0);
-        } else if (args[0].equals("commit")) {
-            commit(args);
-            System.exit(0);
-        } else if (args[0].equals("rm")) {
-            rm(args);
-            System.exit(0);
-        } else if (args[0].equals("log")) {
-            log(args);
-            System.exit(0);
-        } else if (args[0].equals("global-log")) {
-            globallog(args);
-            System.exit(0);
-        } else if (args[0].equals("reset")) {
-            reset(args);
-            System.exit(0);
-        } else if (args[0].equals("find")) {
-            find(args);
-            System.exit(0);
-        } else if (args[0].equals("status")) {
-            if (!Utils.join(objectDirectory, "Repository").exists()) {
-                System.out.println("Not in an initialized Gitlet directory.");
-                System.exit(0);
+        File dir = new File(".");
+        String trace = System.getenv("GITLET_TRACE");
+        if (args.length > 0 && args[0].equals("--trace")) {
+            trace = "text";
+            args = Arrays.copyOfRange(args, 1, args.length);
+        } else if (args.length > 0 && args[0].startsWith("--trace=")) {
+            trace = args[0].substring("--trace=".length());
+            args = Arrays.copyOfRange(args, 1, args.length);
+        }
+        Trace.configure(trace);
+        boolean batch = args.length > 0 && args[0].equals("batch");
+        if (args.length > 0 && !batch && !Trace.enabled()) {
+            int status = Daemon.forward(dir, args, System.out);
+            if (status >= 0) {
+                System.exit(status);
             }
-            status(args);
-        } else if (args[0].equals("checkout")) {
-            checkOut(args);
-        } else if (args[0].equals("branch")) {
-            branch(args);
-            System.exit(0);
-        } else if (args[0].equals("rm-branch")) {
-            rmBranch(args);
-            System.exit(0);
-        } else if (args[0].equals("merge")) {
-            merge(args);
-            System.exit(0);
+        }
+        if (batch) {
+            batch(dir, args);
+        } else if (args.length > 0 && args[0].equals("daemon")) {
+            daemon(dir, args);
         } else {
-            System.out.println("No command with that name exists.");
+            run(dir, null, System.out, args);
+        }
+        System.out.flush();
+        if (Trace.enabled()) {
+            Trace.report(System.err, String.join(" ", args));
         }
         System.exit(0);
     }
 
-    /** The init method which takes in ARGS. **/
-    public static void init(String... args) {
-        File gitlet = Utils.join(objectDirectory, "Repository");
-        if (gitlet.exists()) {
-            System.out.println("A Gitlet version-control"
-                    +  " system already exists in the current directory");
-            System.exit(0);
+    /** Runs the command ARGS on the repository in DIR, writing its
+     *  output and any error to OUT. GITLET holds the repository if it
+     *  is already open, and is null otherwise.
+     * @return the repository, or null if it was never opened **/
+    static Gitlet run(File dir, Gitlet gitlet, PrintStream out,
+                      String... args) {
+        try {
+            return execute(dir, gitlet, out, args);
+        } catch (GitletException excp) {
+            out.println(excp.getMessage());
+            return gitlet;
         }
-        objectDirectory.mkdir(); r = new Repository();
-        Utils.writeObject(Utils.join(objectDirectory, "Repository"), r);
-        System.exit(0);
     }
 
-    /** Log helper method which takes in ARGS. **/
-    public static void log(String... args) {
-        if (args.length > 1) {
-            System.exit(0);
+    /** Runs the command ARGS as run does, but throws a GitletException
+     *  if it fails, having changed nothing.
+     * @return the repository **/
+    static Gitlet execute(File dir, Gitlet gitlet, PrintStream out,
+                          String... args) {
+        if (args.length < 1) {
+            throw new GitletException("Please enter a command.");
         }
-        String head = r.getHead();
-        while (r.getCommits().contains(head)) {
-            Commit c = r.getCommitWithHash(head);
-            System.out.println("===");
-            System.out.print("commit ");
-            System.out.println(c.getHash());
-            System.out.print("Date: ");
-            System.out.println(logTime.format(c.getTimestamp()));
-            System.out.println(c.getMessage());
-            System.out.println();
-            if (r.getCommitWithHash(head).getParentHash() != null) {
-                head = r.getCommitWithHash(head).getParentHash();
-            } else {
-                System.exit(0);
-            }
+        if (args[0].equals("init")) {
+            return Gitlet.init(dir);
+        }
+        Gitlet g = gitlet == null ? Gitlet.open(dir) : gitlet;
+        switch (args[0]) {
+        case "add":
+            g.add(Arrays.copyOfRange(args, 1, args.length));
+            break;
+        case "commit":
+            commit(g, args);
+            break;
+        case "rm":
+            rm(g, args);
+            break;
+        case "log":
+        case "global-log":
+            log(g, out, args);
+            break;
+        case "reset":
+            reset(g, args);
+            break;
+        case "find":
+            find(g, out, args);
+            break;
+        case "status":
+            status(g, out, args);
+            break;
+        case "checkout":
+            checkOut(g, args);
+            break;
+        case "branch":
+            branch(g, args);
+            break;
+        case "rm-branch":
+            rmBranch(g, args);
+            break;
+        case "merge":
+            merge(g, out, args);
+            break;
+        case "gc":
+        case "repack":
+            gc(g, args);
+            break;
+        default:
+            throw new GitletException("No command with that name exists.");
+        }
+        return g;
+    }
 
+    /** Serves the repository in DIR as a daemon, given ARGS. **/
+    private static void daemon(File dir, String... args) {
+        if (args.length == 2 && args[1].equals("stop")) {
+            System.out.println("No daemon is running.");
+        } else if (args.length != 1) {
+            System.out.println("Incorrect operands.");
+        } else if (!Repository.exists(dir)) {
+            System.out.println("Not in an initialized Gitlet directory.");
+        } else {
+            new Daemon(dir).serve();
         }
-        System.exit(0);
     }
 
-    /** Global log helper method which takes in ARGS. **/
-    public static void globallog(String... args) {
-        if (args.length != 1) {
-            System.out.println("Incorrect Operands");
-            System.exit(0);
+    /** Runs the commands read from the file named by ARGS, or from the
+     *  standard input if there is none, on the repository in DIR. **/
+    private static void batch(File dir, String... args) {
+        if (args.length > 2) {
+            System.out.println("Incorrect operands.");
+            return;
+        }
+        try (Reader in = args.length == 1
+                 ? new InputStreamReader(System.in)
+                 : new FileReader(args[1])) {
+            new Batch(dir, new PrintStream(new BufferedOutputStream(
+                    System.out, ObjectStore.BUFFER_SIZE))).run(in);
+        } catch (FileNotFoundException excp) {
+            System.out.println("File does not exist.");
+        } catch (IOException excp) {
+            throw new IllegalArgumentException(excp.getMessage());
         }
-        for (String com: r.getCommits()) {
-            Commit c = r.getCommitWithHash(com);
-            System.out.println("===");
-            System.out.print("commit ");
-            System.out.println(c.getHash());
-            System.out.print("Date: ");
-            System.out.println(logTime.format(c.getTimestamp()));
-            System.out.println(c.getMessage());
-            System.out.println();
+    }
+
+    /** Prints the log of the head commit of G to OUT, or of every
+     * commit if ARGS is global-log, as limited by the options in ARGS,
+     * through one buffered writer. **/
+    private static void log(Gitlet g, PrintStream out, String... args) {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out),
+                ObjectStore.BUFFER_SIZE);
+        String[] options = Arrays.copyOfRange(args, 1, args.length);
+        try {
+            if (args[0].equals("global-log")) {
+                g.globalLog(writer, options);
+            } else {
+                g.log(writer, options);
+            }
+        } catch (IOException excp) {
+            throw new IllegalArgumentException(excp.getMessage());
         }
     }
 
-    /** Find helper method which takes in ARGS. **/
-    public static void find(String... args) {
-        boolean notfound = true;
-        if (args.length != 2) {
-            System.out.println("Incorrect Operands.");
-            System.exit(0);
+    /** Find helper method which takes in G, OUT and ARGS, either a
+     * message or --word followed by words that the messages must all
+     * contain. **/
+    private static void find(Gitlet g, PrintStream out, String... args) {
+        List<String> found;
+        if (args.length > 2 && args[1].equals("--word")) {
+            found = g.findWords(Arrays.copyOfRange(args, 2, args.length));
+        } else if (args.length == 2) {
+            found = g.find(args[1]);
+        } else {
+            throw new GitletException("Incorrect Operands.");
         }
-        for (String com: r.getCommits()) {
-            if (r.getCommitWithHash(com).getMessage().equals(args[1])) {
-                notfound = false;
-                System.out.println(com);
-            }
+        for (String com: found) {
+            out.println(com);
         }
-        if (notfound) {
-            System.out.println("Found no commit with that message.");
-            System.exit(0);
+        if (found.isEmpty()) {
+            throw new GitletException("Found no commit with that message.");
         }
     }
 
-    /** Branch helper method whiich takes in ARGS. **/
-    public static void branch(String... args) {
+    /** Branch helper method which takes in G and ARGS. **/
+    private static void branch(Gitlet g, String... args) {
         if (args.length != 2) {
-            System.out.println("Incorrect operands.");
-            System.exit(0);
-        }
-        try {
-            r.makeBranch(args[1]);
-            File repo = Utils.join(objectDirectory, "Repository");
-            Utils.writeObject(repo, r);
-            System.exit(0);
-        } catch (GitletException e) {
-            System.out.println(e.getMessage());
-            System.exit(0);
+            throw new GitletException("Incorrect operands.");
         }
+        g.branch(args[1]);
     }
 
-    /** RMBranch helper method which takes in ARGS. **/
-    public static void rmBranch(String... args) {
+    /** RMBranch helper method which takes in G and ARGS. **/
+    private static void rmBranch(Gitlet g, String... args) {
         if (args.length != 2) {
-            System.out.println("Incorrect Operands.");
-            System.exit(0);
-        }
-        try {
-            r.removeBranch(args[1]);
-            File repo = Utils.join(objectDirectory, "Repository");
-            Utils.writeObject(repo, r);
-            System.exit(0);
-        } catch (GitletException e) {
-            System.out.println(e.getMessage());
-            System.exit(0);
+            throw new GitletException("Incorrect Operands.");
         }
+        g.removeBranch(args[1]);
     }
 
-    /** Commit helper method which takes in ARGS. **/
-    public static void commit(String... args) {
-        try {
-            r.createCommit(args[1]);
-            Utils.writeObject(Utils.join(objectDirectory, "Repository"), r);
-            System.exit(0);
-        } catch (GitletException e) {
-            System.out.println(e.getMessage());
-            System.exit(0);
+    /** Commit helper method which takes in G and ARGS. **/
+    private static void commit(Gitlet g, String... args) {
+        if (args.length < 2) {
+            throw new GitletException("Please enter a commit message.");
         }
+        g.commit(args[1]);
     }
 
-    /** RM helper method which takes in ARGS. **/
-    public static void rm(String... args) {
-        try {
-            String f = args[1];
-            r.removeFile(f);
-            File repo = Utils.join(objectDirectory, "Repository");
-            Utils.writeObject(repo, r);
-            System.exit(0);
-        } catch (GitletException e) {
-            System.out.println(e.getMessage());
-            System.exit(0);
+    /** RM helper method which takes in G and ARGS. **/
+    private static void rm(Gitlet g, String... args) {
+        if (args.length != 2) {
+            throw new GitletException("Incorrect operands.");
         }
+        g.rm(args[1]);
     }
 
-    /** Reset helper method which takes in ARGS. **/
-    public static void reset(String... args) {
+    /** Reset helper method which takes in G and ARGS. **/
+    private static void reset(Gitlet g, String... args) {
         if (args.length != 2) {
-            System.out.println("Incorrect Operands.");
-            System.exit(0);
-        }
-        try {
-            r.reset(r.uidToID(args[1]));
-            File repo = Utils.join(objectDirectory, "Repository");
-            Utils.writeObject(repo, r);
-            System.exit(0);
-        } catch (GitletException e) {
-            System.out.println(e.getMessage());
-            System.exit(0);
+            throw new GitletException("Incorrect Operands.");
         }
+        g.reset(args[1]);
     }
 
-    /** Status helper method which takes in ARGS. **/
-    public static void status(String... args) {
+    /** Status helper method which takes in G, OUT and ARGS. **/
+    private static void status(Gitlet g, PrintStream out, String... args) {
         if (args.length != 1) {
-            System.out.println("Incorrect Operands.");
-            System.exit(0);
+            throw new GitletException("Incorrect Operands.");
         }
-        System.out.println("=== Branches ===");
-        for (String branch: r.getBranches().keySet()) {
-            if (branch.equals(r.getCurrentBranch())) {
-                System.out.print("*"); System.out.println(branch);
-            } else {
-                System.out.println(branch);
+        Status status = g.status();
+        out.println("=== Branches ===");
+        for (String branch: status.getBranches()) {
+            if (branch.equals(status.getCurrentBranch())) {
+                out.print("*");
             }
+            out.println(branch);
         }
-        System.out.println();
-        System.out.println("=== Staged Files ===");
-        for (String f: r.getStagingArea().getBranches().keySet()) {
-            if (!r.getHeadCommit().isTracked(f)) {
-                System.out.println(f);
-            }
+        out.println();
+        out.println("=== Staged Files ===");
+        for (String f: status.getStaged()) {
+            out.println(f);
         }
-        System.out.println();
-        System.out.println("=== Removed Files ===");
-        for (String g: r.getHeadCommit().getTree().keySet()) {
-            if (!r.getStagingArea().isTracked(g)) {
-                System.out.println(g);
-            }
+        out.println();
+        out.println("=== Removed Files ===");
+        for (String f: status.getRemoved()) {
+            out.println(f);
         }
-        System.out.println();
-        System.out.println("=== Modifications Not Staged For Commit ===");
-        for (String h: r.getStagingArea().getBranches().keySet()) {
-            String thisHash;
-            File f = Utils.join(r.getCurrentDir(), h);
-            if (!f.exists()) {
-                thisHash = "";
-            } else {
-                thisHash = Utils.sha1(Utils.readContents(f));
-            }
-            if (!r.getStagingArea().getBranches().get(h).equals(thisHash)) {
-                if (Utils.plainFilenamesIn(r.getCurrentDir()).contains(h)) {
-                    System.out.print(h); System.out.println(" (modified)");
-                } else {
-                    System.out.print(h);
-                    System.out.println(" (deleted)");
-                }
-            }
+        out.println();
+        out.println("=== Modifications Not Staged For Commit ===");
+        for (Map.Entry<String, String> f: status.getUnstaged().entrySet()) {
+            out.println(f.getKey() + " (" + f.getValue() + ")");
         }
-        System.out.println();
-        System.out.println("=== Untracked Files ===");
-        for (String i: Utils.plainFilenamesIn(r.getCurrentDir())) {
-            if (!r.getStagingArea().getBranches().keySet().contains(i)) {
-                System.out.println(i);
-            }
+        out.println();
+        out.println("=== Untracked Files ===");
+        for (String f: status.getUntracked()) {
+            out.println(f);
         }
-        System.out.println();
-        System.exit(0);
+        out.println();
     }
 
-    /** Checkout helper method which takes in ARGS. **/
-    public static void checkOut(String... args) {
-        if (args.length > 4) {
-            System.out.println("Incorrect Operands.");
-            System.exit(0);
-        }
-        if (args[1].equals("--")) {
-            if (args.length != 3) {
-                System.out.println("Incorrect Operands.");
-                System.exit(0);
-            }
-            String filename = args[2];
-            try {
-                r.resetFile(filename);
-                Utils.writeObject(Utils.join(objectDirectory, "Repository"), r);
-                System.exit(0);
-            } catch (GitletException e) {
-                System.out.println(e.getMessage());
-                System.exit(0);
-            }
+    /** Checkout helper method which takes in G and ARGS. **/
+    private static void checkOut(Gitlet g, String... args) {
+        if (args.length == 3 && args[1].equals("--")) {
+            g.checkoutFile(args[2]);
         } else if (args.length == 2) {
-            try {
-                r.checkout(args[1]);
-                Utils.writeObject(Utils.join(objectDirectory, "Repository"), r);
-                System.exit(0);
-            } catch (GitletException e) {
-                System.out.println(e.getMessage()); System.exit(0);
-            }
-        } else if (args[2].equals("--")) {
-            try {
-                r.resetFile(args[3], r.uidToID(args[1]));
-                Utils.writeObject(Utils.join(objectDirectory, "Repository"), r);
-                System.exit(0);
-            } catch (GitletException e) {
-                System.out.println(e.getMessage());
-                System.exit(0);
-            }
-        }  else {
-            System.out.println("Incorrect Operands.");
-            System.exit(0);
+            g.checkout(args[1]);
+        } else if (args.length == 4 && args[2].equals("--")) {
+            g.checkoutFile(args[1], args[3]);
+        } else {
+            throw new GitletException("Incorrect Operands.");
         }
     }
 
-
-    /** Add helper method which takes in ARGS. **/
-    public static void add(String... args) {
-        if (args.length > 2 || args.length < 2) {
-            System.exit(0);
-        }
-        if (!Utils.join(workingDirectory, args[1]).exists()) {
-            System.out.println("File does not exist.");
-            System.exit(0);
-        }
-        try {
-            r.addFile(args[1]);
-            Utils.writeObject(Utils.join(objectDirectory, "Repository"), r);
-            System.exit(0);
-        } catch (GitletException e) {
-            System.out.println(e.getMessage());
-            System.exit(0);
+    /** GC helper method which takes in G and ARGS. **/
+    private static void gc(Gitlet g, String... args) {
+        if (args.length != 1) {
+            throw new GitletException("Incorrect operands.");
         }
+        g.gc();
     }
 
-    /** Merge helper method which takes in ARGS. **/
-    public static void merge(String... args) {
+    /** Merge helper method which takes in G, OUT and ARGS. **/
+    private static void merge(Gitlet g, PrintStream out, String... args) {
         if (args.length != 2) {
-            System.out.println("Incorrect operands.");
-            System.exit(0);
+            throw new GitletException("Incorrect operands.");
         }
-        try {
-            String branch = args[1];
-            r.merge(branch);
-            File repo = Utils.join(objectDirectory, "Repository");
-            Utils.writeObject(repo, r);
-            System.exit(0);
-        } catch (GitletException e) {
-            System.out.println(e.getMessage());
-            System.exit(0);
+        if (g.merge(args[1])) {
+            out.println("Encountered a merge conflict.");
         }
     }
-
 }
@@ -0,0 +1,198 @@
+package gitlet;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+
+/** A three-way merge of the lines of a file, as diff3 does it. Both
+ *  versions are diffed against their common base; the hunks of either
+ *  diff that touch the same lines of the base, or adjoin them, are
+ *  gathered into one region. A region changed on one side only takes
+ *  that side, as does one changed the same way on both sides. Any
+ *  other region is a conflict, written as
+ *
+ *      <<<<<<< HEAD
+ *      current lines
+ *      =======
+ *      other lines
+ *      >>>>>>>
+ *
+ *  Lines are runs of bytes ending in '\n', compared without decoding,
+ *  so files in any encoding that keeps '\n' a byte of its own merge
+ *  alike. A version holding a NUL byte is binary; the whole of both
+ *  sides is then written as one conflict.
+ *
+ *  The result is written a range of lines at a time, and nothing but
+ *  the lines of the three versions and their diffs is kept.
+ *
+ * @author tomzheng
+ */
+final class Merge3 {
+
+    /** Start of a conflict. **/
+    private static final byte[] OURS =
+        "<<<<<<< HEAD\n".getBytes(StandardCharsets.US_ASCII);
+
+    /** Separator of the two sides of a conflict. **/
+    private static final byte[] THEIRS =
+        "=======\n".getBytes(StandardCharsets.US_ASCII);
+
+    /** End of a conflict. **/
+    private static final byte[] END =
+        ">>>>>>>\n".getBytes(StandardCharsets.US_ASCII);
+
+    /** Not instantiable. **/
+    private Merge3() {
+    }
+
+    /** Writes to OUT the merge of the contents OURS and THEIRS, both
+     *  derived from BASE, line by line unless one of them is binary.
+     * @return true if there was a conflict **/
+    static boolean merge(byte[] base, byte[] ours, byte[] theirs,
+                         OutputStream out) throws IOException {
+        if (isBinary(base) || isBinary(ours) || isBinary(theirs)) {
+            out.write(OURS);
+            out.write(ours);
+            out.write(THEIRS);
+            out.write(theirs);
+            out.write(END);
+            return true;
+        }
+        return merge(lines(base), lines(ours), lines(theirs), out);
+    }
+
+    /** Checks whether CONTENTS holds a NUL byte.
+     * @return boolean **/
+    static boolean isBinary(byte[] contents) {
+        for (byte b: contents) {
+            if (b == 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /** Writes to OUT the merge of the lines OURS and THEIRS, both
+     *  derived from BASE. Lines keep their line terminators.
+     * @return true if there was a conflict **/
+    static boolean merge(List<ByteBuffer> base, List<ByteBuffer> ours,
+                         List<ByteBuffer> theirs, OutputStream out)
+        throws IOException {
+        HashMap<ByteBuffer, Integer> numbers = new HashMap<>();
+        int[] b = Diff.number(base, numbers);
+        int[] o = Diff.number(ours, numbers);
+        int[] t = Diff.number(theirs, numbers);
+        List<Diff.Hunk> mine = Diff.diff(b, o);
+        List<Diff.Hunk> yours = Diff.diff(b, t);
+        boolean conflict = false;
+        int done = 0;
+        int i = 0, j = 0;
+        while (i < mine.size() || j < yours.size()) {
+            int lo = Math.min(start(mine, i), start(yours, j));
+            int hi = lo;
+            int firstMine = i, firstYours = j;
+            while (true) {
+                if (i < mine.size() && mine.get(i).aStart <= hi) {
+                    hi = Math.max(hi, mine.get(i).aEnd);
+                    i += 1;
+                } else if (j < yours.size() && yours.get(j).aStart <= hi) {
+                    hi = Math.max(hi, yours.get(j).aEnd);
+                    j += 1;
+                } else {
+                    break;
+                }
+            }
+            write(out, base, done, lo);
+            done = hi;
+            if (j == firstYours) {
+                write(out, ours, mine.get(firstMine).bStart,
+                        mine.get(i - 1).bEnd);
+            } else if (i == firstMine) {
+                write(out, theirs, yours.get(firstYours).bStart,
+                        yours.get(j - 1).bEnd);
+            } else {
+                int oLo = mapStart(mine.get(firstMine), lo);
+                int oHi = mapEnd(mine.get(i - 1), hi);
+                int tLo = mapStart(yours.get(firstYours), lo);
+                int tHi = mapEnd(yours.get(j - 1), hi);
+                if (same(o, oLo, oHi, t, tLo, tHi)) {
+                    write(out, ours, oLo, oHi);
+                } else {
+                    conflict = true;
+                    out.write(OURS);
+                    write(out, ours, oLo, oHi);
+                    out.write(THEIRS);
+                    write(out, theirs, tLo, tHi);
+                    out.write(END);
+                }
+            }
+        }
+        write(out, base, done, base.size());
+        return conflict;
+    }
+
+    /** Returns the lines of CONTENTS, each with its terminator, as
+     *  views of CONTENTS, which compare and hash by their bytes. **/
+    static List<ByteBuffer> lines(byte[] contents) {
+        List<ByteBuffer> lines = new ArrayList<>();
+        int start = 0;
+        for (int i = 0; i < contents.length; i++) {
+            if (contents[i] == '\n') {
+                lines.add(ByteBuffer.wrap(contents, start, i + 1 - start));
+                start = i + 1;
+            }
+        }
+        if (start < contents.length) {
+            lines.add(ByteBuffer.wrap(contents, start,
+                    contents.length - start));
+        }
+        return lines;
+    }
+
+    /** Returns the first line of the base replaced by the Ith of HUNKS,
+     *  or the greatest int if there is none. **/
+    private static int start(List<Diff.Hunk> hunks, int i) {
+        return i < hunks.size() ? hunks.get(i).aStart : Integer.MAX_VALUE;
+    }
+
+    /** Returns the line of the changed version matching line LO of the
+     *  base, given that HUNK is the first change at or after LO. **/
+    private static int mapStart(Diff.Hunk hunk, int lo) {
+        return hunk.bStart - (hunk.aStart - lo);
+    }
+
+    /** Returns the line of the changed version matching line HI of the
+     *  base, given that HUNK is the last change up to HI. **/
+    private static int mapEnd(Diff.Hunk hunk, int hi) {
+        return hunk.bEnd + (hi - hunk.aEnd);
+    }
+
+    /** Checks whether lines ALO up to AHI of A equal lines BLO up to BHI
+     *  of B.
+     * @return boolean **/
+    private static boolean same(int[] a, int aLo, int aHi,
+                                int[] b, int bLo, int bHi) {
+        if (aHi - aLo != bHi - bLo) {
+            return false;
+        }
+        for (int k = 0; k < aHi - aLo; k++) {
+            if (a[aLo + k] != b[bLo + k]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /** Writes lines FROM up to TO of LINES to OUT. **/
+    private static void write(OutputStream out, List<ByteBuffer> lines,
+                              int from, int to) throws IOException {
+        for (int k = from; k < to; k++) {
+            ByteBuffer line = lines.get(k);
+            out.write(line.array(), line.position(), line.remaining());
+        }
+    }
+}
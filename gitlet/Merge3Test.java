@@ -0,0 +1,87 @@
+package gitlet;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+/** Tests of three-way merges of lines.
+ *  @author tomzheng
+ */
+public class Merge3Test {
+
+    /** The result of the last merge. */
+    private String _result;
+
+    /** Merges OURS and THEIRS from BASE into _result.
+     *  @return whether they conflict */
+    private boolean merge(String base, String ours, String theirs)
+        throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        boolean conflict = Merge3.merge(bytes(base), bytes(ours),
+                bytes(theirs), out);
+        _result = out.toString(StandardCharsets.ISO_8859_1);
+        return conflict;
+    }
+
+    /** Returns the bytes of S, one per char. */
+    private static byte[] bytes(String s) {
+        return s.getBytes(StandardCharsets.ISO_8859_1);
+    }
+
+    @Test
+    public void mergesDisjointChanges() throws IOException {
+        assertFalse(merge("a\nb\nc\nd\ne\n", "A\nb\nc\nd\ne\n",
+                "a\nb\nc\nd\nE\nf\n"));
+        assertEquals("A\nb\nc\nd\nE\nf\n", _result);
+        assertFalse(merge("a\nb\nc\n", "a\nc\n", "a\nb\nc\nd\n"));
+        assertEquals("a\nc\nd\n", _result);
+    }
+
+    @Test
+    public void takesTheSameChangeOnce() throws IOException {
+        assertFalse(merge("a\nb\nc\n", "a\nx\nc\n", "a\nx\nc\n"));
+        assertEquals("a\nx\nc\n", _result);
+    }
+
+    @Test
+    public void marksOnlyTheConflictingLines() throws IOException {
+        assertTrue(merge("a\nb\nc\nd\ne\n", "a\nb\nX\nd\nE\n",
+                "a\nb\nY\nd\ne\n"));
+        assertEquals("a\nb\n<<<<<<< HEAD\nX\n=======\nY\n>>>>>>>\nd\nE\n",
+                _result);
+    }
+
+    @Test
+    public void adjacentChangesConflict() throws IOException {
+        assertTrue(merge("a\nb\n", "A\nb\n", "a\nB\n"));
+        assertEquals("<<<<<<< HEAD\nA\nb\n=======\na\nB\n>>>>>>>\n",
+                _result);
+    }
+
+    @Test
+    public void missingVersionsConflictWhole() throws IOException {
+        assertTrue(merge("", "one\n", "two\n"));
+        assertEquals("<<<<<<< HEAD\none\n=======\ntwo\n>>>>>>>\n", _result);
+        assertTrue(merge("a\nb\n", "", "a\nc\n"));
+        assertEquals("<<<<<<< HEAD\n=======\na\nc\n>>>>>>>\n", _result);
+        assertTrue(merge("x", "y", "z"));
+        assertEquals("<<<<<<< HEAD\ny=======\nz>>>>>>>\n", _result);
+    }
+
+    @Test
+    public void mergesBytesWithoutDecoding() throws IOException {
+        assertFalse(merge("\u00ff\n\u00c3\nb\n", "\u00fe\n\u00c3\nb\n",
+                "\u00ff\n\u00c3\nB\n"));
+        assertEquals("\u00fe\n\u00c3\nB\n", _result);
+    }
+
+    @Test
+    public void binaryVersionsConflictWhole() throws IOException {
+        assertTrue(merge("a\n\0\nb\n", "A\n\0\nb\n", "a\n\0\nB\n"));
+        assertEquals("<<<<<<< HEAD\nA\n\0\nb\n=======\na\n\0\nB\n"
+                + ">>>>>>>\n", _result);
+    }
+}
@@ -0,0 +1,133 @@
+package gitlet;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/** Finds the best common ancestor of two commits, following every
+ *  parent of merge commits. Both commits are walked together, newest
+ *  generation first, marking each commit reached with the sides it is
+ *  reachable from. A commit reached from both sides is a common
+ *  ancestor, and its own ancestors are marked stale, since they cannot
+ *  be better. The walk stops once only stale commits are left, so it
+ *  never goes much further back than the answer.
+ *
+ *  No common ancestor found is an ancestor of another, so the result
+ *  needs no filtering afterwards: an ancestor has a lower generation
+ *  than its descendants, so every commit on the way down from a common
+ *  ancestor is walked, passing on the stale mark, before the ancestor
+ *  is, and it is then stale rather than counted.
+ *
+ * @author tomzheng
+ */
+final class MergeBase {
+
+    /** The commit history that is walked. **/
+    interface History {
+
+        /** Getter method for the parents of commit ID.
+         * @return ids **/
+        List<String> parents(String id);
+
+        /** Getter method for the generation of commit ID: 1 for a
+         * commit without parents, and otherwise one more than the
+         * greatest generation of its parents.
+         * @return generation **/
+        int generation(String id);
+    }
+
+    /** Mark of commits reachable from the first commit. **/
+    private static final int FIRST = 1;
+
+    /** Mark of commits reachable from the second commit. **/
+    private static final int SECOND = 2;
+
+    /** Mark of commits that are ancestors of a common ancestor. **/
+    private static final int STALE = 4;
+
+    /** Not instantiable. **/
+    private MergeBase() {
+    }
+
+    /** A commit waiting to be walked. **/
+    private static class Entry implements Comparable<Entry> {
+
+        /** Id of the commit. **/
+        private final String _id;
+
+        /** Its generation. **/
+        private final int _generation;
+
+        /** Constructor for commit ID of generation GENERATION. **/
+        Entry(String id, int generation) {
+            _id = id;
+            _generation = generation;
+        }
+
+        @Override
+        public int compareTo(Entry other) {
+            if (_generation != other._generation) {
+                return Integer.compare(other._generation, _generation);
+            }
+            return _id.compareTo(other._id);
+        }
+    }
+
+    /** Returns the best common ancestors of commits A and B in HISTORY,
+     *  those that are not ancestors of other common ancestors, newest
+     *  generation first. **/
+    static List<String> findAll(History history, String a, String b) {
+        List<String> result = new ArrayList<>();
+        if (a.equals(b)) {
+            result.add(a);
+            return result;
+        }
+        HashMap<String, Integer> marks = new HashMap<>();
+        PriorityQueue<Entry> queue = new PriorityQueue<>();
+        marks.put(a, FIRST);
+        marks.put(b, SECOND);
+        queue.add(new Entry(a, history.generation(a)));
+        queue.add(new Entry(b, history.generation(b)));
+        int fresh = 2;
+        // A parent has a lower generation than its children, so a
+        // marked parent is always still waiting in the queue.
+        while (fresh > 0) {
+            String id = queue.poll()._id;
+            int mark = marks.get(id);
+            if ((mark & STALE) == 0) {
+                fresh -= 1;
+                if ((mark & (FIRST | SECOND)) == (FIRST | SECOND)) {
+                    result.add(id);
+                    mark |= STALE;
+                }
+            }
+            for (String parent: history.parents(id)) {
+                Integer old = marks.get(parent);
+                int before = old == null ? 0 : old;
+                int after = before | mark;
+                if (after == before) {
+                    continue;
+                }
+                marks.put(parent, after);
+                if (old == null) {
+                    queue.add(new Entry(parent, history.generation(parent)));
+                    if ((after & STALE) == 0) {
+                        fresh += 1;
+                    }
+                } else if ((before & STALE) == 0 && (after & STALE) != 0) {
+                    fresh -= 1;
+                }
+            }
+        }
+        return result;
+    }
+
+    /** Returns the best common ancestor of commits A and B in HISTORY,
+     *  the one of newest generation if there are several, or null if
+     *  they have none. **/
+    static String find(History history, String a, String b) {
+        List<String> all = findAll(history, a, b);
+        return all.isEmpty() ? null : all.get(0);
+    }
+}
@@ -0,0 +1,120 @@
+package gitlet;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+
+/** Tests of merge bases.
+ *  @author tomzheng
+ */
+public class MergeBaseTest {
+
+    /** A history built by hand. */
+    private static class Graph implements MergeBase.History {
+
+        /** Parents of each commit. */
+        private final HashMap<String, List<String>> _parents = new HashMap<>();
+
+        /** Generation of each commit. */
+        private final HashMap<String, Integer> _generations = new HashMap<>();
+
+        /** Number of times parents was called. */
+        private int _walked;
+
+        /** Adds commit ID with PARENTS, which must already be there. */
+        Graph add(String id, String... parents) {
+            int generation = 1;
+            for (String parent: parents) {
+                generation = Math.max(generation, _generations.get(parent) + 1);
+            }
+            _parents.put(id, Arrays.asList(parents));
+            _generations.put(id, generation);
+            return this;
+        }
+
+        @Override
+        public List<String> parents(String id) {
+            _walked += 1;
+            return _parents.get(id);
+        }
+
+        @Override
+        public int generation(String id) {
+            return _generations.get(id);
+        }
+    }
+
+    @Test
+    public void linearHistory() {
+        Graph g = new Graph().add("a").add("b", "a").add("c", "b");
+        assertEquals("b", MergeBase.find(g, "b", "c"));
+        assertEquals("b", MergeBase.find(g, "c", "b"));
+        assertEquals("c", MergeBase.find(g, "c", "c"));
+    }
+
+    @Test
+    public void followsMergeParents() {
+        Graph g = new Graph().add("a").add("b", "a").add("c", "a")
+            .add("m", "c", "b").add("d", "b").add("e", "m");
+        assertEquals("b", MergeBase.find(g, "e", "d"));
+        assertEquals("a", MergeBase.find(g, "c", "d"));
+    }
+
+    @Test
+    public void crissCrossGivesBothBases() {
+        Graph g = new Graph().add("a").add("b", "a").add("c", "a")
+            .add("x", "b", "c").add("y", "c", "b");
+        List<String> bases = MergeBase.findAll(g, "x", "y");
+        assertEquals(Arrays.asList("b", "c"), bases);
+    }
+
+    @Test
+    public void leavesOutAncestorsOfBases() {
+        Graph g = new Graph().add("a").add("b", "a").add("c", "a")
+            .add("s", "c").add("x", "b", "s").add("y", "s", "b")
+            .add("w", "y", "c");
+        assertEquals(Arrays.asList("s", "b"), MergeBase.findAll(g, "x", "w"));
+    }
+
+    @Test
+    public void unrelatedHistories() {
+        Graph g = new Graph().add("a").add("b");
+        assertNull(MergeBase.find(g, "a", "b"));
+    }
+
+    @Test
+    public void stopsNearTheBase() {
+        Graph g = new Graph().add("c0");
+        for (int i = 1; i <= 100000; i++) {
+            g.add("c" + i, "c" + (i - 1));
+        }
+        String left = "c100000";
+        String right = "c100000";
+        for (int i = 0; i < 10; i++) {
+            g.add("l" + i, left).add("r" + i, right);
+            left = "l" + i;
+            right = "r" + i;
+        }
+        assertEquals("c100000", MergeBase.find(g, left, right));
+        assertTrue(g._walked < 100);
+    }
+
+    @Test
+    public void manyMerges() {
+        Graph g = new Graph().add("root");
+        List<String> tips = new ArrayList<>();
+        String main = "root";
+        for (int i = 0; i < 1000; i++) {
+            g.add("t" + i, main);
+            g.add("m" + i, main, "t" + i);
+            main = "m" + i;
+            tips.add("t" + i);
+        }
+        g.add("side", "t500");
+        assertEquals("t500", MergeBase.find(g, main, "side"));
+    }
+}
@@ -0,0 +1,195 @@
+package gitlet;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+
+/** Commit ids indexed by message, so that find reads a small part of
+ *  the index instead of every commit. Lines
+ *
+ *      HASH ID
+ *
+ *  where HASH is the hash of a message, are appended to the bucket
+ *  named after the first two hex digits of HASH under messages/, and
+ *  lines
+ *
+ *      WORD ID
+ *
+ *  to the bucket named after the first two hex digits of the hash of
+ *  WORD under words/, for each distinct word of the message. Words are
+ *  the maximal runs of letters and digits, in lower case. Since lines
+ *  are only appended, each bucket lists commits in creation order.
+ *
+ * @author tomzheng
+ */
+class MessageIndex {
+
+    /** Directory of the buckets of message hashes. **/
+    private final File _messagesDir;
+
+    /** Directory of the buckets of words. **/
+    private final File _wordsDir;
+
+    /** Constructor for the index rooted at FOLDER. **/
+    MessageIndex(File folder) {
+        _messagesDir = Utils.join(folder, "messages");
+        _wordsDir = Utils.join(folder, "words");
+    }
+
+    /** Builds the index of the commits IDS, in creation order, whose
+     *  messages are MESSAGES, replacing whatever is there. The words
+     *  are moved into place last, so an index whose building was cut
+     *  short does not exist. **/
+    void build(List<String> ids, List<String> messages) {
+        TreeMap<String, StringBuilder> byMessage = new TreeMap<>();
+        TreeMap<String, StringBuilder> byWord = new TreeMap<>();
+        for (int i = 0; i < ids.size(); i++) {
+            collect(ids.get(i), messages.get(i), byMessage, byWord);
+        }
+        File words = new File(_wordsDir.getPath() + ".tmp");
+        clear(_messagesDir);
+        clear(words);
+        clear(_wordsDir);
+        _wordsDir.delete();
+        write(_messagesDir, byMessage);
+        write(words, byWord);
+        if (!words.renameTo(_wordsDir)) {
+            throw new IllegalArgumentException("cannot write " + _wordsDir);
+        }
+    }
+
+    /** Creates DIR if need be and deletes the files in it. **/
+    private static void clear(File dir) {
+        dir.mkdirs();
+        for (String name: Utils.plainFilenamesIn(dir)) {
+            Utils.join(dir, name).delete();
+        }
+    }
+
+    /** Writes BUCKETS, a map from bucket name to lines, to DIR. **/
+    private static void write(File dir, Map<String, StringBuilder> buckets) {
+        for (Map.Entry<String, StringBuilder> e: buckets.entrySet()) {
+            Utils.writeContents(Utils.join(dir, e.getKey()),
+                    e.getValue().toString());
+        }
+    }
+
+    /** Adds the commit ID, whose message is MESSAGE. **/
+    void add(String id, String message) {
+        TreeMap<String, StringBuilder> byMessage = new TreeMap<>();
+        TreeMap<String, StringBuilder> byWord = new TreeMap<>();
+        collect(id, message, byMessage, byWord);
+        _messagesDir.mkdirs();
+        _wordsDir.mkdirs();
+        append(_messagesDir, byMessage);
+        append(_wordsDir, byWord);
+    }
+
+    /** Adds the lines for commit ID, whose message is MESSAGE, to
+     *  BYMESSAGE and BYWORD, maps from bucket name to contents. **/
+    private static void collect(String id, String message,
+                                Map<String, StringBuilder> byMessage,
+                                Map<String, StringBuilder> byWord) {
+        String hash = Utils.sha1(message);
+        byMessage.computeIfAbsent(hash.substring(0, 2),
+            k -> new StringBuilder()).append(hash).append(' ')
+            .append(id).append('\n');
+        for (String word: words(message)) {
+            byWord.computeIfAbsent(Utils.sha1(word).substring(0, 2),
+                k -> new StringBuilder()).append(word).append(' ')
+                .append(id).append('\n');
+        }
+    }
+
+    /** Appends the contents of BUCKETS, a map from bucket name to
+     *  lines, to the buckets in DIR. **/
+    private static void append(File dir, Map<String, StringBuilder> buckets) {
+        try {
+            for (Map.Entry<String, StringBuilder> e: buckets.entrySet()) {
+                Files.write(Utils.join(dir, e.getKey()).toPath(),
+                        e.getValue().toString()
+                            .getBytes(StandardCharsets.UTF_8),
+                        StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+            }
+        } catch (IOException excp) {
+            throw new IllegalArgumentException(excp.getMessage());
+        }
+    }
+
+    /** Getter method for the commits whose message is MESSAGE.
+     * @return ids in creation order **/
+    List<String> withMessage(String message) {
+        String hash = Utils.sha1(message);
+        return lookup(_messagesDir, hash.substring(0, 2), hash);
+    }
+
+    /** Getter method for the commits whose messages contain every word
+     *  of QUERIES, ignoring case.
+     * @return ids in creation order **/
+    List<String> withWords(List<String> queries) {
+        List<String> words = new ArrayList<>();
+        for (String query: queries) {
+            words.addAll(words(query));
+        }
+        LinkedHashSet<String> result = null;
+        for (String word: words) {
+            List<String> ids = lookup(_wordsDir,
+                    Utils.sha1(word).substring(0, 2), word);
+            if (result == null) {
+                result = new LinkedHashSet<>(ids);
+            } else {
+                result.retainAll(new HashSet<>(ids));
+            }
+        }
+        return result == null ? new ArrayList<>() : new ArrayList<>(result);
+    }
+
+    /** Returns the ids on the lines of bucket NAME in DIR whose key is
+     *  KEY. **/
+    private static List<String> lookup(File dir, String name, String key) {
+        List<String> ids = new ArrayList<>();
+        File bucket = Utils.join(dir, name);
+        if (!bucket.isFile()) {
+            return ids;
+        }
+        String text = Utils.readContentsAsString(bucket);
+        String prefix = key + " ";
+        int start = 0;
+        while (start < text.length()) {
+            int end = text.indexOf('\n', start);
+            if (text.startsWith(prefix, start)) {
+                ids.add(text.substring(start + prefix.length(), end));
+            }
+            start = end + 1;
+        }
+        return ids;
+    }
+
+    /** Returns the distinct words of MESSAGE, in order of appearance:
+     *  the maximal runs of letters and digits, in lower case. **/
+    static List<String> words(String message) {
+        LinkedHashSet<String> words = new LinkedHashSet<>();
+        String lower = message.toLowerCase(Locale.ROOT);
+        int start = -1;
+        for (int i = 0; i <= lower.length(); i++) {
+            boolean part = i < lower.length()
+                && Character.isLetterOrDigit(lower.charAt(i));
+            if (part && start < 0) {
+                start = i;
+            } else if (!part && start >= 0) {
+                words.add(lower.substring(start, i));
+                start = -1;
+            }
+        }
+        return new ArrayList<>(words);
+    }
+}
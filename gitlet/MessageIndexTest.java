@@ -0,0 +1,46 @@
+package gitlet;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/** Tests of the index of commit messages.
+ *  @author tomzheng
+ */
+public class MessageIndexTest {
+
+    @Test
+    public void splitsWords() {
+        assertEquals(Arrays.asList("fix", "the", "merge", "bug2"),
+                MessageIndex.words("Fix the merge-bug2; fix THE merge."));
+        assertTrue(MessageIndex.words(" -- ").isEmpty());
+    }
+
+    @Test
+    public void findsMessagesAndWords() throws IOException {
+        MessageIndex index = new MessageIndex(ObjectStoreTest.tempDir());
+        List<String> ids = new ArrayList<>();
+        List<String> messages = Arrays.asList("initial commit",
+                "Add wug", "add more wugs", "Add wug");
+        for (int i = 0; i < 3; i++) {
+            ids.add(Utils.sha1("commit " + i));
+        }
+        index.build(ids, messages.subList(0, 3));
+        ids.add(Utils.sha1("commit 3"));
+        index.add(ids.get(3), messages.get(3));
+        assertEquals(Arrays.asList(ids.get(1), ids.get(3)),
+                index.withMessage("Add wug"));
+        assertTrue(index.withMessage("add wug").isEmpty());
+        assertEquals(Arrays.asList(ids.get(1), ids.get(2), ids.get(3)),
+                index.withWords(Arrays.asList("ADD")));
+        assertEquals(Arrays.asList(ids.get(2)),
+                index.withWords(Arrays.asList("add", "more")));
+        assertEquals(Arrays.asList(ids.get(2)),
+                index.withWords(Arrays.asList("more-wugs")));
+        assertTrue(index.withWords(Arrays.asList("wu")).isEmpty());
+    }
+}
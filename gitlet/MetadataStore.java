@@ -0,0 +1,266 @@
+package gitlet;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/** On-disk metadata of a repository, kept as small independent files
+ *  so that a command only reads and rewrites what it touches.
+ *
+ *  .gitlet/HEAD               name of the current branch
+ *  .gitlet/refs/heads/NAME    hash of the commit at the tip of NAME
+ *  .gitlet/index              the serialized staging area
+ *  .gitlet/commits            ids of all commits, one per line
+ *  .gitlet/commit-graph       parents and generations of the commits
+ *  .gitlet/messages, words    commits by message (see MessageIndex)
+ *
+ *  The commits themselves are kept in the object store.
+ *
+ * @author tomzheng
+ */
+class MetadataStore {
+
+    /** Length of each line of the commits file. **/
+    private static final int LINE = 41;
+
+    /** The object store holding the commits. **/
+    private final ObjectStore _objects;
+
+    /** File holding the name of the current branch. **/
+    private final File _headFile;
+
+    /** Directory holding one file per branch. **/
+    private final File _refsDir;
+
+    /** File holding the staging area. **/
+    private final File _indexFile;
+
+    /** Append-only list of commit ids. **/
+    private final File _commitsFile;
+
+    /** The commit graph. **/
+    private final File _graphFile;
+
+    /** The index of commit messages. **/
+    private final MessageIndex _messages;
+
+    /** Constructor for the store rooted at FOLDER, keeping commits
+     *  in OBJECTS. **/
+    MetadataStore(File folder, ObjectStore objects) {
+        _objects = objects;
+        _headFile = Utils.join(folder, "HEAD");
+        _refsDir = Utils.join(folder, "refs", "heads");
+        _indexFile = Utils.join(folder, "index");
+        _commitsFile = Utils.join(folder, "commits");
+        _graphFile = Utils.join(folder, "commit-graph");
+        _messages = new MessageIndex(folder);
+    }
+
+    /** Checks whether a repository exists in FOLDER.
+     * @return boolean **/
+    static boolean exists(File folder) {
+        return Utils.join(folder, "HEAD").isFile();
+    }
+
+    /** Creates the directory skeleton of a new repository. **/
+    void create() {
+        _refsDir.mkdirs();
+    }
+
+    /** Getter method for the current branch name.
+     * @return branch **/
+    String readHead() {
+        return Utils.readContentsAsString(_headFile).trim();
+    }
+
+    /** Records BRANCH as the current branch. **/
+    void writeHead(String branch) {
+        Utils.writeContents(_headFile, branch, "\n");
+    }
+
+    /** Getter method for the tip of BRANCH.
+     * @return hash, or null if there is no such branch **/
+    String readRef(String branch) {
+        File ref = Utils.join(_refsDir, branch);
+        if (!ref.isFile()) {
+            return null;
+        }
+        return Utils.readContentsAsString(ref).trim();
+    }
+
+    /** Points BRANCH at the commit HASH. **/
+    void writeRef(String branch, String hash) {
+        Utils.writeContents(Utils.join(_refsDir, branch), hash, "\n");
+    }
+
+    /** Removes BRANCH. **/
+    void deleteRef(String branch) {
+        Utils.join(_refsDir, branch).delete();
+    }
+
+    /** Getter method for the names of all branches.
+     * @return names in lexicographic order **/
+    List<String> refNames() {
+        List<String> names = Utils.plainFilenamesIn(_refsDir);
+        if (names == null) {
+            return new ArrayList<>();
+        }
+        return names;
+    }
+
+    /** Getter method for the staging area.
+     * @return staging area **/
+    StagingArea readIndex() {
+        long start = Trace.start();
+        byte[] data = Utils.readContents(_indexFile);
+        StagingArea sa = Utils.deserialize(data, StagingArea.class);
+        Trace.end(Trace.Phase.INDEX_READ, start, data.length);
+        sa.setIndexTime(indexTime());
+        return sa;
+    }
+
+    /** Saves the staging area SA. The files it records as modified no
+     *  earlier than the index was written are then smudged, and the
+     *  index written again, as git does for racily clean entries. SA
+     *  takes the new time of the index. **/
+    void writeIndex(StagingArea sa) {
+        long start = Trace.start();
+        byte[] data = Utils.serialize(sa);
+        Utils.writeContents(_indexFile, data);
+        long length = data.length;
+        long time = indexTime();
+        if (sa.smudge(time)) {
+            data = Utils.serialize(sa);
+            Utils.writeContents(_indexFile, data);
+            length += data.length;
+            time = indexTime();
+        }
+        sa.setIndexTime(time);
+        Trace.end(Trace.Phase.INDEX_WRITE, start, length);
+    }
+
+    /** Getter method for the modification time of the index.
+     * @return nanoseconds **/
+    private long indexTime() {
+        try {
+            return Files.getLastModifiedTime(_indexFile.toPath())
+                .to(TimeUnit.NANOSECONDS);
+        } catch (IOException excp) {
+            throw new IllegalArgumentException(excp.getMessage());
+        }
+    }
+
+    /** Getter method for the commit with hash ID.
+     * @return commit, or null if there is none **/
+    Commit readCommit(String id) {
+        if (!_objects.contains(id)) {
+            return null;
+        }
+        long start = Trace.start();
+        byte[] record = _objects.read(id, ObjectStore.COMMIT);
+        if (record == null) {
+            return null;
+        }
+        Commit c = Commit.decode(id, record);
+        Trace.end(Trace.Phase.COMMIT_READ, start, record.length);
+        return c;
+    }
+
+    /** Saves commit C, records its id and indexes its message. **/
+    void writeCommit(Commit c) {
+        _objects.write(c.getHash(), ObjectStore.COMMIT, c.encode());
+        messageIndex().add(c.getHash(), c.getMessage());
+        try {
+            Files.write(_commitsFile.toPath(),
+                    (c.getHash() + "\n").getBytes(StandardCharsets.UTF_8),
+                    StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+        } catch (IOException excp) {
+            throw new IllegalArgumentException(excp.getMessage());
+        }
+    }
+
+    /** Saves the commits CS, in creation order, as the only commits,
+     *  replacing the list of commits and the index of messages. **/
+    void writeCommits(List<Commit> cs) {
+        StringBuilder ids = new StringBuilder();
+        List<String> hashes = new ArrayList<>();
+        List<String> messages = new ArrayList<>();
+        for (Commit c: cs) {
+            _objects.write(c.getHash(), ObjectStore.COMMIT, c.encode());
+            ids.append(c.getHash()).append('\n');
+            hashes.add(c.getHash());
+            messages.add(c.getMessage());
+        }
+        Utils.writeContents(_commitsFile, ids.toString());
+        _messages.build(hashes, messages);
+    }
+
+    /** Getter method for the ids of all commits in creation order.
+     * @return ids **/
+    List<String> commitIds() {
+        return commitIds(0);
+    }
+
+    /** Getter method for the ids of the commits in creation order,
+     *  starting with the one numbered FROM. Since every line of the
+     *  commits file has the same length, the others are not read.
+     * @return ids **/
+    List<String> commitIds(int from) {
+        return commitIds(from, Integer.MAX_VALUE);
+    }
+
+    /** Getter method for the ids of at most COUNT commits in creation
+     *  order, starting with the one numbered FROM.
+     * @return ids **/
+    List<String> commitIds(int from, int count) {
+        List<String> ids = new ArrayList<>();
+        if (!_commitsFile.isFile()) {
+            return ids;
+        }
+        try (RandomAccessFile in = new RandomAccessFile(_commitsFile, "r")) {
+            long start = (long) from * LINE;
+            long end = Math.min(in.length(), start + (long) count * LINE);
+            byte[] rest = new byte[(int) Math.max(0, end - start)];
+            in.seek(start);
+            in.readFully(rest);
+            String text = new String(rest, StandardCharsets.UTF_8);
+            if (!text.isEmpty()) {
+                ids.addAll(Arrays.asList(text.split("\n")));
+            }
+        } catch (IOException excp) {
+            throw new IllegalArgumentException(excp.getMessage());
+        }
+        return ids;
+    }
+
+    /** Getter method for the number of commits.
+     * @return count **/
+    int commitCount() {
+        return (int) (_commitsFile.length() / LINE);
+    }
+
+    /** Getter method for the index of commit messages.
+     * @return index **/
+    MessageIndex messageIndex() {
+        return _messages;
+    }
+
+    /** Getter method for the commit graph.
+     * @return graph, or null if none has been written **/
+    CommitGraph readGraph() {
+        return CommitGraph.open(_graphFile);
+    }
+
+    /** Writes the graph of the commits OLD, which may be null, covers
+     *  and of the commits ADDED, in creation order. **/
+    void writeGraph(CommitGraph old, List<String> added) {
+        CommitGraph.write(_graphFile, old, added, this::readCommit);
+    }
+}
@@ -0,0 +1,265 @@
+package gitlet;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InvalidClassException;
+import java.io.ObjectInputStream;
+import java.io.ObjectStreamClass;
+import java.io.ObjectStreamField;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/** Converts a repository made by the first version of gitlet into the
+ *  current layout. That version kept the whole repository, with every
+ *  commit, the branches and the staging area, as one serialized
+ *  Repository in .gitlet/Repository, and each blob and commit as a loose
+ *  file in .gitlet named by its hash.
+ *
+ *  The blobs keep their hashes. Each commit is stored again in the
+ *  current encoding, in the order it was made, with the tree of its
+ *  files; since the hash of a commit is that of its encoding, the
+ *  commits get new hashes. The branches, the current branch and the
+ *  staging area are carried over. HEAD, whose presence makes the new
+ *  layout a repository, is written last, so a migration that is cut
+ *  short is started again; the old files are deleted only after it.
+ *
+ * @author tomzheng
+ */
+final class Migration {
+
+    /** Name of the file the first version kept the repository in. **/
+    static final String FILE = "Repository";
+
+    /** The classes of the first version that the serialized repository
+     *  holds, by name, and the classes they are read as. **/
+    private static final Map<String, Class<?>> CLASSES = new HashMap<>();
+
+    static {
+        CLASSES.put("gitlet.Repository", OldRepository.class);
+        CLASSES.put("gitlet.Commit", OldCommit.class);
+        CLASSES.put("gitlet.StagingArea", OldStagingArea.class);
+    }
+
+    /** A repository as the first version serialized it. Its fields have
+     *  the names and serialVersionUID of that version's Repository. **/
+    static final class OldRepository implements Serializable {
+        /** As computed for the first version's Repository. **/
+        private static final long serialVersionUID = -3315243274066122241L;
+        /** Working directory. **/
+        File currentDir;
+        /** The .gitlet directory. **/
+        File folder;
+        /** Hashes of the commits in the order they were made. **/
+        ArrayList<String> commits;
+        /** Hash of the head commit. **/
+        String head;
+        /** Name of the current branch. **/
+        String _currBranch;
+        /** The head commit. **/
+        OldCommit headCommit;
+        /** Hash of the tip of each branch, by name. **/
+        TreeMap<String, String> _branches;
+        /** Directory gitlet was run in. **/
+        File origin;
+        /** The staging area. **/
+        OldStagingArea _stagingarea;
+        /** Every commit, by hash. **/
+        HashMap<String, OldCommit> hashToCommit;
+    }
+
+    /** A commit as the first version serialized it. **/
+    static final class OldCommit implements Serializable {
+        /** As computed for the first version's Commit. **/
+        private static final long serialVersionUID = 6929644645933566893L;
+        /** The message. **/
+        String _commitmessage;
+        /** The hash. **/
+        String _hash;
+        /** When the commit was made. **/
+        Date _timestamp;
+        /** Blob hash of each file, by path. **/
+        HashMap<String, String> _commitTree;
+        /** The parent, or null. **/
+        OldCommit _parent;
+        /** Hash of the parent, or null. **/
+        String _parentHash;
+        /** The second parent of a merge, or null. **/
+        OldCommit _coparent;
+    }
+
+    /** A staging area as the first version serialized it. **/
+    static final class OldStagingArea implements Serializable {
+        /** As computed for the first version's StagingArea. **/
+        private static final long serialVersionUID = 4844647126630052870L;
+        /** Blob hash of each file to be committed, by path. **/
+        HashMap<String, String> branches;
+        /** Blob hash of each file of the head commit, by path. **/
+        HashMap<String, String> previous;
+    }
+
+    /** Not instantiable. **/
+    private Migration() {
+    }
+
+    /** Checks whether FOLDER holds a repository of the first version
+     *  that has not been migrated.
+     * @return boolean **/
+    static boolean needed(File folder) {
+        return !MetadataStore.exists(folder)
+            && Utils.join(folder, FILE).isFile();
+    }
+
+    /** Converts the repository of the first version in FOLDER. **/
+    static void run(File folder) {
+        OldRepository old = read(Utils.join(folder, FILE));
+        ObjectStore objects = new ObjectStore(folder);
+        MetadataStore store = new MetadataStore(folder, objects);
+        store.create();
+        objects.create();
+        HashMap<String, ObjectId> blobs = new HashMap<>();
+        HashMap<String, Commit> converted = new HashMap<>();
+        List<Commit> commits = new ArrayList<>();
+        for (String id: old.commits) {
+            OldCommit c = old.hashToCommit.get(id);
+            Commit parent = c._parentHash == null ? null
+                : converted.get(c._parentHash);
+            Commit merged = c._coparent == null ? null
+                : converted.get(c._coparent._hash);
+            int generation = 1;
+            for (Commit p: new Commit[] {parent, merged}) {
+                if (p != null) {
+                    generation = Math.max(generation, p.getGeneration() + 1);
+                }
+            }
+            ObjectId tree = Tree.write(objects,
+                    files(folder, objects, c._commitTree, blobs),
+                    new HashMap<>());
+            Commit n = new Commit(tree.toString(),
+                    parent == null ? null : parent.getHash(),
+                    merged == null ? null : merged.getHash(), generation,
+                    c._timestamp, c._commitmessage);
+            converted.put(id, n);
+            commits.add(n);
+        }
+        store.writeCommits(commits);
+        store.writeIndex(stagingArea(folder, objects, old, blobs));
+        for (Map.Entry<String, String> e: old._branches.entrySet()) {
+            store.writeRef(e.getKey(), converted.get(e.getValue()).getHash());
+        }
+        store.writeHead(old._currBranch);
+        Utils.join(folder, FILE).delete();
+        for (String name: Utils.plainFilenamesIn(folder)) {
+            if (name.matches("[0-9a-f]{" + Utils.UID_LENGTH + "}")) {
+                Utils.join(folder, name).delete();
+            }
+        }
+    }
+
+    /** Returns the staging area of OLD, whose blobs are loose files in
+     *  FOLDER, storing them in OBJECTS; BLOBS caches their hashes. **/
+    private static StagingArea stagingArea(File folder, ObjectStore objects,
+                                           OldRepository old,
+                                           Map<String, ObjectId> blobs) {
+        HashMap<String, ObjectId> head = files(folder, objects,
+                old.hashToCommit.get(old.head)._commitTree, blobs);
+        HashMap<String, ObjectId> trees = new HashMap<>();
+        Tree.write(objects, head, trees);
+        StagingArea sa = new StagingArea(head, trees);
+        HashMap<String, ObjectId> staged = files(folder, objects,
+                old._stagingarea.branches, blobs);
+        for (Map.Entry<String, ObjectId> e: staged.entrySet()) {
+            if (!e.getValue().equals(head.get(e.getKey()))) {
+                sa.add(e.getKey(), e.getValue());
+            }
+        }
+        for (String name: head.keySet()) {
+            if (!staged.containsKey(name)) {
+                sa.remove(name);
+            }
+        }
+        return sa;
+    }
+
+    /** Returns FILES, a map from path to blob hash, with the hashes as
+     *  ObjectIds, storing each blob, a loose file in FOLDER, in OBJECTS
+     *  unless BLOBS, which maps the hashes of the blobs already stored to
+     *  their ObjectIds, has it. **/
+    private static HashMap<String, ObjectId> files(
+            File folder, ObjectStore objects, Map<String, String> files,
+            Map<String, ObjectId> blobs) {
+        HashMap<String, ObjectId> result = new HashMap<>();
+        for (Map.Entry<String, String> e: files.entrySet()) {
+            ObjectId id = blobs.get(e.getValue());
+            if (id == null) {
+                id = ObjectId.of(objects.writeBlob(
+                        Utils.readContents(Utils.join(folder, e.getValue()))));
+                blobs.put(e.getValue(), id);
+            }
+            result.put(e.getKey(), id);
+        }
+        return result;
+    }
+
+    /** Reads the repository serialized by the first version in FILE.
+     * @return repository **/
+    private static OldRepository read(File file) {
+        try (ObjectInputStream in =
+                 new OldInputStream(new FileInputStream(file))) {
+            return (OldRepository) in.readObject();
+        } catch (IOException | ClassNotFoundException
+                 | ClassCastException excp) {
+            throw new IllegalArgumentException(excp.getMessage());
+        }
+    }
+
+    /** A stream of objects serialized by the first version, whose
+     *  classes of that version are read as the classes of this class.
+     *  Those have the same serializable fields, so the stream's
+     *  descriptions of them are swapped for theirs. Classes outside java
+     *  are refused. **/
+    private static class OldInputStream extends ObjectInputStream {
+
+        /** Constructor for a stream read from IN. **/
+        OldInputStream(InputStream in) throws IOException {
+            super(in);
+        }
+
+        @Override
+        protected ObjectStreamClass readClassDescriptor()
+            throws IOException, ClassNotFoundException {
+            ObjectStreamClass desc = super.readClassDescriptor();
+            Class<?> c = CLASSES.get(desc.getName());
+            if (c == null) {
+                if (!desc.getName().startsWith("java.")) {
+                    throw new InvalidClassException(desc.getName(),
+                            "not part of a repository");
+                }
+                return desc;
+            }
+            ObjectStreamClass local = ObjectStreamClass.lookup(c);
+            if (desc.getSerialVersionUID() != local.getSerialVersionUID()
+                    || !fieldNames(desc).equals(fieldNames(local))) {
+                throw new InvalidClassException(desc.getName(),
+                        "not as written by the first version");
+            }
+            return local;
+        }
+
+        /** Returns the names of the serializable fields of DESC, in the
+         *  order they are serialized. **/
+        private static List<String> fieldNames(ObjectStreamClass desc) {
+            List<String> names = new ArrayList<>();
+            for (ObjectStreamField f: desc.getFields()) {
+                names.add(f.getName());
+            }
+            return names;
+        }
+    }
+}
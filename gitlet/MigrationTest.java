@@ -0,0 +1,139 @@
+package gitlet;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.TreeMap;
+
+/** Tests of the migration of repositories of the first version.
+ *  @author tomzheng
+ */
+public class MigrationTest {
+
+    /** Returns DATA, a serialized stream, with each name FROM in it
+     *  replaced by TO. **/
+    private static byte[] rename(byte[] data, String from, String to) {
+        byte[] old = from.getBytes(StandardCharsets.UTF_8);
+        byte[] now = to.getBytes(StandardCharsets.UTF_8);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        int i = 0;
+        while (i < data.length) {
+            if (i + 2 + old.length <= data.length
+                    && data[i] == 0 && data[i + 1] == old.length
+                    && Arrays.equals(Arrays.copyOfRange(data, i + 2,
+                            i + 2 + old.length), old)) {
+                out.write(0);
+                out.write(now.length);
+                out.write(now, 0, now.length);
+                i += 2 + old.length;
+            } else {
+                out.write(data[i]);
+                i += 1;
+            }
+        }
+        return out.toByteArray();
+    }
+
+    /** Writes R into DIR as the first version of gitlet did, under the
+     *  names of that version's classes. **/
+    private static void writeOld(File dir, Migration.OldRepository r) {
+        byte[] data = Utils.serialize(r);
+        for (String name: new String[] {"Repository", "Commit",
+                                        "StagingArea"}) {
+            data = rename(data, "gitlet.Migration$Old" + name,
+                    "gitlet." + name);
+            data = rename(data, "Lgitlet/Migration$Old" + name + ";",
+                    "Lgitlet/" + name + ";");
+        }
+        Utils.writeContents(Utils.join(dir, ".gitlet", "Repository"), data);
+    }
+
+    /** Returns a commit of the first version with MESSAGE, made at
+     *  TIME on PARENT, of FILES, a map from name to blob hash. **/
+    private static Migration.OldCommit commit(String message, long time,
+                                              Migration.OldCommit parent,
+                                              HashMap<String, String> files) {
+        Migration.OldCommit c = new Migration.OldCommit();
+        c._commitmessage = message;
+        c._timestamp = new Date(time);
+        c._commitTree = files;
+        c._parent = parent;
+        c._parentHash = parent == null ? null : parent._hash;
+        c._hash = Utils.sha1(message, Long.toString(time));
+        return c;
+    }
+
+    @Test
+    public void migratesFirstVersion() throws IOException {
+        File dir = ObjectStoreTest.tempDir();
+        File folder = Utils.join(dir, ".gitlet");
+        folder.mkdir();
+        String one = Utils.sha1("one\n");
+        String two = Utils.sha1("two\n");
+        Utils.writeContents(Utils.join(folder, one), "one\n");
+        Utils.writeContents(Utils.join(folder, two), "two\n");
+        HashMap<String, String> files = new HashMap<>();
+        Migration.OldCommit initial = commit("initial commit", 0, null,
+                new HashMap<>());
+        files.put("f.txt", one);
+        Migration.OldCommit first = commit("first", 1000, initial,
+                new HashMap<>(files));
+        files.put("d/g.txt", two);
+        Migration.OldCommit second = commit("second", 2000, first,
+                new HashMap<>(files));
+
+        Migration.OldRepository r = new Migration.OldRepository();
+        r.commits = new ArrayList<>(Arrays.asList(initial._hash,
+                first._hash, second._hash));
+        r.hashToCommit = new HashMap<>();
+        for (Migration.OldCommit c: new Migration.OldCommit[] {
+                initial, first, second}) {
+            r.hashToCommit.put(c._hash, c);
+        }
+        r.head = second._hash;
+        r.headCommit = second;
+        r._currBranch = "master";
+        r._branches = new TreeMap<>();
+        r._branches.put("master", second._hash);
+        r._branches.put("old", first._hash);
+        r._stagingarea = new Migration.OldStagingArea();
+        r._stagingarea.previous = new HashMap<>(files);
+        files.remove("f.txt");
+        r._stagingarea.branches = files;
+        writeOld(dir, r);
+
+        try {
+            Gitlet.init(dir);
+            fail();
+        } catch (GitletException excp) {
+            assertTrue(excp.getMessage().contains("already exists"));
+        }
+        Gitlet g = Gitlet.open(dir);
+        assertFalse(Utils.join(folder, "Repository").exists());
+        assertFalse(Utils.join(folder, one).exists());
+        assertEquals(Arrays.asList("master", "old"),
+                g.status().getBranches());
+        assertEquals(Collections.singletonList("f.txt"),
+                g.status().getRemoved());
+        StringWriter log = new StringWriter();
+        g.log(log);
+        assertTrue(log.toString().matches("(?s)===\ncommit [0-9a-f]{40}\n"
+                + "Date: .*\nsecond\n\n===\n.*\nfirst\n\n===\n.*"
+                + "\ninitial commit\n\n"));
+        assertEquals(1, g.find("first").size());
+        g.checkout("old");
+        assertEquals("one\n",
+                Utils.readContentsAsString(Utils.join(dir, "f.txt")));
+        assertFalse(Utils.join(dir, "d", "g.txt").exists());
+    }
+}
@@ -0,0 +1,119 @@
+package gitlet;
+
+import java.io.Serializable;
+
+/** The SHA-1 hash of an object, held as its 20 bytes rather than as 40
+ *  hex digits: 32 bytes of heap instead of about 100 for a String, and
+ *  equality is three comparisons. Ids order as their hex forms do.
+ *
+ * @author tomzheng
+ */
+final class ObjectId implements Comparable<ObjectId>, Serializable {
+
+    /** Pinned, so that written indexes stay readable. **/
+    private static final long serialVersionUID = -7279832880287414430L;
+
+    /** Length of the hex form of an id. **/
+    static final int HEX_LENGTH = 2 * Sha1.BYTES;
+
+    /** First 8 bytes, big-endian. **/
+    private final long _high;
+
+    /** Next 8 bytes, big-endian. **/
+    private final long _middle;
+
+    /** Last 4 bytes, big-endian. **/
+    private final int _low;
+
+    /** Constructor for the id whose bytes are HIGH, MIDDLE and LOW. **/
+    private ObjectId(long high, long middle, int low) {
+        _high = high;
+        _middle = middle;
+        _low = low;
+    }
+
+    /** Returns the id whose hex form is HEX, or null if HEX is null. **/
+    static ObjectId of(String hex) {
+        if (hex == null) {
+            return null;
+        }
+        if (hex.length() != HEX_LENGTH) {
+            throw new IllegalArgumentException("not an object id: " + hex);
+        }
+        return of(hex, 0);
+    }
+
+    /** Returns the id whose hex form is the 40 characters of TEXT
+     *  starting at START. **/
+    static ObjectId of(CharSequence text, int start) {
+        return of(Sha1.fromHex(text, start, HEX_LENGTH));
+    }
+
+    /** Returns the id whose bytes are BYTES. **/
+    static ObjectId of(byte[] bytes) {
+        return of(bytes, 0);
+    }
+
+    /** Returns the id whose bytes are the 20 of BYTES starting at
+     *  START. **/
+    static ObjectId of(byte[] bytes, int start) {
+        return new ObjectId(read(bytes, start, 8), read(bytes, start + 8, 8),
+                (int) read(bytes, start + 16, 4));
+    }
+
+    /** Returns the big-endian value of the COUNT bytes of BYTES starting
+     *  at START. **/
+    private static long read(byte[] bytes, int start, int count) {
+        long value = 0;
+        for (int i = start; i < start + count; i++) {
+            value = value << 8 | (bytes[i] & 0xff);
+        }
+        return value;
+    }
+
+    /** Returns the 20 bytes of this id. **/
+    byte[] toBytes() {
+        byte[] bytes = new byte[Sha1.BYTES];
+        for (int i = 0; i < 8; i++) {
+            bytes[i] = (byte) (_high >>> (56 - 8 * i));
+            bytes[8 + i] = (byte) (_middle >>> (56 - 8 * i));
+        }
+        for (int i = 0; i < 4; i++) {
+            bytes[16 + i] = (byte) (_low >>> (24 - 8 * i));
+        }
+        return bytes;
+    }
+
+    /** Returns the hex form of this id. **/
+    @Override
+    public String toString() {
+        return Sha1.hex(toBytes());
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (!(obj instanceof ObjectId)) {
+            return false;
+        }
+        ObjectId other = (ObjectId) obj;
+        return _high == other._high && _middle == other._middle
+                && _low == other._low;
+    }
+
+    @Override
+    public int hashCode() {
+        return (int) (_high >>> 32);
+    }
+
+    @Override
+    public int compareTo(ObjectId other) {
+        int cmp = Long.compareUnsigned(_high, other._high);
+        if (cmp == 0) {
+            cmp = Long.compareUnsigned(_middle, other._middle);
+        }
+        if (cmp == 0) {
+            cmp = Integer.compareUnsigned(_low, other._low);
+        }
+        return cmp;
+    }
+}
@@ -0,0 +1,66 @@
+package gitlet;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/** Tests of binary object ids.
+ *  @author tomzheng
+ */
+public class ObjectIdTest {
+
+    @Test
+    public void convertsBothWays() {
+        for (int i = 0; i < 100; i++) {
+            String hex = Utils.sha1("object " + i);
+            ObjectId id = ObjectId.of(hex);
+            assertEquals(hex, id.toString());
+            assertEquals(hex, Sha1.hex(id.toBytes()));
+            assertEquals(id, ObjectId.of(Sha1.fromHex(hex)));
+            assertEquals(id, ObjectId.of("x" + hex + "y", 1));
+            assertEquals(id.hashCode(), ObjectId.of(hex).hashCode());
+        }
+        String max = "ffffffffffffffffffffffffffffffffffffffff";
+        assertEquals(max, ObjectId.of(max).toString());
+        assertNull(ObjectId.of((String) null));
+    }
+
+    @Test
+    public void ordersAsHex() {
+        List<String> hexes = new ArrayList<>();
+        List<ObjectId> ids = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            hexes.add(Utils.sha1("order " + i));
+            ids.add(ObjectId.of(hexes.get(i)));
+        }
+        hexes.add("8000000000000000000000000000000000000000");
+        ids.add(ObjectId.of(hexes.get(hexes.size() - 1)));
+        Collections.sort(hexes);
+        Collections.sort(ids);
+        for (int i = 0; i < ids.size(); i++) {
+            assertEquals(hexes.get(i), ids.get(i).toString());
+        }
+    }
+
+    @Test
+    public void distinguishesIds() {
+        ObjectId a = ObjectId.of("0123456789abcdef0123456789abcdef01234567");
+        ObjectId b = ObjectId.of("0123456789abcdef0123456789abcdef01234568");
+        assertNotEquals(a, b);
+        assertNotEquals(a, a.toString());
+        assertTrue(a.compareTo(b) < 0);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsShortIds() {
+        ObjectId.of("0123");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsBadDigits() {
+        ObjectId.of("0123456789abcdef0123456789abcdef0123456z");
+    }
+}
@@ -0,0 +1,493 @@
+package gitlet;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
+
+/** Content-addressed store of compressed objects. A loose object with
+ *  id ID is kept in .gitlet/objects/ID[0..2]/ID[2..], so that no single
+ *  directory grows too large. Each object file is the deflated form of
+ *  a header "TYPE LENGTH\0" followed by the contents of the object.
+ *  Repacking folds the loose objects into .gitlet/objects/pack.
+ *
+ * @author tomzheng
+ */
+class ObjectStore {
+
+    /** Type of file contents. **/
+    static final String BLOB = "blob";
+
+    /** Type of serialized commits. **/
+    static final String COMMIT = "commit";
+
+    /** Type of directory listings. **/
+    static final String TREE = "tree";
+
+    /** Compression level used unless the gitlet.compression property
+     *  says otherwise. **/
+    static final int DEFAULT_LEVEL = Deflater.BEST_SPEED;
+
+    /** Size of the buffers used to stream objects. **/
+    static final int BUFFER_SIZE = 1 << 16;
+
+    /** Largest object read into memory to look for a delta when
+     *  repacking. **/
+    static final long DELTA_LIMIT = 1 << 25;
+
+    /** The objects directory. **/
+    private final File _dir;
+
+    /** The Deflater compression level, 0 (none) to 9 (best). **/
+    private final int _level;
+
+    /** The packs, loaded on demand. **/
+    private List<PackFile> _packs;
+
+    /** Constructor for the store under FOLDER compressing at LEVEL. **/
+    ObjectStore(File folder, int level) {
+        _dir = Utils.join(folder, "objects");
+        _level = level;
+    }
+
+    /** Constructor for the store under FOLDER, compressing at the
+     *  level given by the gitlet.compression property. **/
+    ObjectStore(File folder) {
+        this(folder, Integer.getInteger("gitlet.compression", DEFAULT_LEVEL));
+    }
+
+    /** Getter method for the file holding object ID.
+     * @return file **/
+    File fileFor(String id) {
+        return Utils.join(_dir, id.substring(0, 2), id.substring(2));
+    }
+
+    /** Checks whether object ID is stored.
+     * @return boolean **/
+    boolean contains(String id) {
+        return fileFor(id).isFile() || packFor(id) != null;
+    }
+
+    /** Getter method for the directory holding the packs.
+     * @return directory **/
+    private File packDir() {
+        return Utils.join(_dir, "pack");
+    }
+
+    /** Getter method for the packs in the store.
+     * @return packs **/
+    synchronized List<PackFile> packs() {
+        if (_packs == null) {
+            _packs = new ArrayList<>();
+            List<String> names = Utils.plainFilenamesIn(packDir());
+            if (names != null) {
+                for (String name: names) {
+                    if (name.endsWith(".idx")) {
+                        _packs.add(new PackFile(Utils.join(packDir(), name)));
+                    }
+                }
+            }
+        }
+        return _packs;
+    }
+
+    /** Getter method for the pack holding ID.
+     * @return pack, or null if no pack holds ID **/
+    private PackFile packFor(String id) {
+        for (PackFile pack: packs()) {
+            if (pack.contains(id)) {
+                return pack;
+            }
+        }
+        return null;
+    }
+
+    /** Getter method for the ids of all loose objects.
+     * @return ids **/
+    List<String> looseIds() {
+        List<String> ids = new ArrayList<>();
+        String[] dirs = _dir.list();
+        if (dirs == null) {
+            return ids;
+        }
+        for (String dir: dirs) {
+            if (dir.length() != 2) {
+                continue;
+            }
+            List<String> names = Utils.plainFilenamesIn(Utils.join(_dir, dir));
+            for (String name: names) {
+                ids.add(dir + name);
+            }
+        }
+        return ids;
+    }
+
+    /** Creates the objects directory. **/
+    void create() {
+        _dir.mkdirs();
+    }
+
+    /** Stores CONTENTS as a blob.
+     * @return id of the blob **/
+    String writeBlob(byte[] contents) {
+        String id = Utils.sha1(contents);
+        write(id, BLOB, contents);
+        return id;
+    }
+
+    /** Stores the contents of FILE as a blob, hashing, compressing and
+     *  writing them in a single pass through a fixed-size buffer. Small
+     *  files are hashed first, so that nothing is written when the blob
+     *  is already stored.
+     * @return id of the blob **/
+    String writeBlob(File file) {
+        long size = file.length();
+        if (size <= BUFFER_SIZE) {
+            return writeBlob(Utils.readContents(file));
+        }
+        long start = Trace.start();
+        MessageDigest md = Sha1.newDigest();
+        File temp = tempFile();
+        Deflater deflater = new Deflater(_level);
+        try (InputStream in = Files.newInputStream(file.toPath());
+             OutputStream out = new DeflaterOutputStream(
+                     Files.newOutputStream(temp.toPath()), deflater,
+                     BUFFER_SIZE)) {
+            out.write(header(BLOB, size));
+            byte[] buf = new byte[BUFFER_SIZE];
+            long total = 0;
+            for (int n = in.read(buf); n > 0; n = in.read(buf)) {
+                md.update(buf, 0, n);
+                out.write(buf, 0, n);
+                total += n;
+            }
+            if (total != size) {
+                throw new IOException(file + " changed while being added");
+            }
+        } catch (IOException excp) {
+            temp.delete();
+            throw new IllegalArgumentException(excp.getMessage());
+        } finally {
+            deflater.end();
+        }
+        String id = Sha1.hex(md.digest());
+        install(temp, id);
+        Trace.end(Trace.Phase.OBJECT_WRITE, start, size);
+        return id;
+    }
+
+    /** Stores CONTENTS of type TYPE under ID, unless already present. **/
+    void write(String id, String type, byte[] contents) {
+        if (contains(id)) {
+            return;
+        }
+        long start = Trace.start();
+        File temp = tempFile();
+        Deflater deflater = new Deflater(_level);
+        try (OutputStream out = new DeflaterOutputStream(
+                Files.newOutputStream(temp.toPath()), deflater)) {
+            out.write(header(type, contents.length));
+            out.write(contents);
+        } catch (IOException excp) {
+            temp.delete();
+            throw new IllegalArgumentException(excp.getMessage());
+        } finally {
+            deflater.end();
+        }
+        install(temp, id);
+        Trace.end(Trace.Phase.OBJECT_WRITE, start, contents.length);
+    }
+
+    /** Returns a new empty file in the objects directory. **/
+    private File tempFile() {
+        try {
+            create();
+            return File.createTempFile("object", ".tmp", _dir);
+        } catch (IOException excp) {
+            throw new IllegalArgumentException(excp.getMessage());
+        }
+    }
+
+    /** Atomically renames TEMP, a complete object file, to the file of
+     *  object ID, or deletes it if ID is already stored. **/
+    private void install(File temp, String id) {
+        if (contains(id)) {
+            temp.delete();
+            return;
+        }
+        File f = fileFor(id);
+        f.getParentFile().mkdirs();
+        try {
+            Files.move(temp.toPath(), f.toPath(),
+                    StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException excp) {
+            temp.delete();
+            throw new IllegalArgumentException(excp.getMessage());
+        }
+    }
+
+    /** Getter method for the contents of object ID.
+     * @return contents **/
+    byte[] read(String id) {
+        return read(id, null);
+    }
+
+    /** Getter method for the contents of object ID, which must have
+     *  type TYPE unless TYPE is null.
+     * @return contents, or null if the object has another type **/
+    byte[] read(String id, String type) {
+        long start = Trace.start();
+        byte[] contents = readStored(id, type);
+        Trace.end(Trace.Phase.OBJECT_READ, start,
+                contents == null ? 0 : contents.length);
+        return contents;
+    }
+
+    /** Reads object ID as read does, untraced.
+     * @return contents, or null if the object has another type **/
+    private byte[] readStored(String id, String type) {
+        if (!fileFor(id).isFile()) {
+            PackFile pack = packFor(id);
+            if (pack == null) {
+                throw new GitletException("No object with that id exists.");
+            }
+            return pack.read(id, type);
+        }
+        try (InputStream in = open(id)) {
+            String[] header = readHeader(in);
+            if (type != null && !header[0].equals(type)) {
+                return null;
+            }
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] buf = new byte[BUFFER_SIZE];
+            for (int n = in.read(buf); n > 0; n = in.read(buf)) {
+                out.write(buf, 0, n);
+            }
+            return out.toByteArray();
+        } catch (IOException excp) {
+            throw new IllegalArgumentException(excp.getMessage());
+        }
+    }
+
+    /** Writes the contents of object ID to DEST, streaming them through
+     *  a fixed-size buffer rather than reading them into memory. **/
+    void copyTo(String id, File dest) {
+        if (dest.isDirectory()) {
+            throw new IllegalArgumentException("cannot overwrite directory");
+        }
+        long start = Trace.start();
+        if (!fileFor(id).isFile()) {
+            PackFile pack = packFor(id);
+            if (pack == null) {
+                throw new GitletException("No object with that id exists.");
+            }
+            pack.copyTo(id, dest);
+            Trace.end(Trace.Phase.OBJECT_READ, start,
+                    start == 0 ? 0 : dest.length());
+            return;
+        }
+        try (InputStream in = open(id);
+             OutputStream out = Files.newOutputStream(dest.toPath())) {
+            readHeader(in);
+            byte[] buf = new byte[BUFFER_SIZE];
+            long total = 0;
+            for (int n = in.read(buf); n > 0; n = in.read(buf)) {
+                out.write(buf, 0, n);
+                total += n;
+            }
+            Trace.end(Trace.Phase.OBJECT_READ, start, total);
+        } catch (IOException excp) {
+            throw new IllegalArgumentException(excp.getMessage());
+        }
+    }
+
+    /** Getter method for the type of object ID.
+     * @return type **/
+    String type(String id) {
+        if (!fileFor(id).isFile()) {
+            PackFile pack = packFor(id);
+            if (pack == null) {
+                throw new GitletException("No object with that id exists.");
+            }
+            return pack.type(id);
+        }
+        try (InputStream in = open(id)) {
+            return readHeader(in)[0];
+        } catch (IOException excp) {
+            throw new IllegalArgumentException(excp.getMessage());
+        }
+    }
+
+    /** Folds every object into one new pack, replacing the loose
+     *  objects and the old packs. BASES maps the id of a blob to an
+     *  older version of the same file, which it is stored as a delta
+     *  against when that saves enough space. **/
+    void repack(Map<String, String> bases) {
+        TreeSet<String> ids = new TreeSet<>(looseIds());
+        List<PackFile> oldPacks = new ArrayList<>(packs());
+        for (PackFile pack: oldPacks) {
+            ids.addAll(pack.ids());
+        }
+        try {
+            PackFile.Writer writer = new PackFile.Writer(packDir(), _level);
+            HashMap<String, Integer> depths = new HashMap<>();
+            ArrayDeque<String> chain = new ArrayDeque<>();
+            HashSet<String> onChain = new HashSet<>();
+            for (String id: ids) {
+                for (String c = id; c != null && ids.contains(c)
+                        && !depths.containsKey(c) && onChain.add(c);
+                     c = bases.get(c)) {
+                    chain.push(c);
+                }
+                onChain.clear();
+                byte[] previous = null;
+                while (!chain.isEmpty()) {
+                    previous = addToPack(writer, chain.pop(), previous,
+                            bases, depths);
+                }
+            }
+            PackFile pack = writer.finish();
+            for (String id: looseIds()) {
+                File f = fileFor(id);
+                f.delete();
+                f.getParentFile().delete();
+            }
+            for (PackFile old: oldPacks) {
+                if (!old.packFile().equals(pack.packFile())) {
+                    old.packFile().delete();
+                    old.indexFile().delete();
+                }
+            }
+            _packs = new ArrayList<>();
+            _packs.add(pack);
+        } catch (IOException excp) {
+            throw new IllegalArgumentException(excp.getMessage());
+        }
+    }
+
+    /** Adds object ID to the pack being written by WRITER, as a delta
+     *  against its entry in BASES if possible. PREVIOUS is null or the
+     *  contents of that base, if it was the object added just before.
+     *  DEPTHS holds the length of the delta chain of each object
+     *  written so far. Objects larger than DELTA_LIMIT are streamed
+     *  into the pack whole instead of being read into memory.
+     * @return the contents of ID, or null if it was streamed **/
+    private byte[] addToPack(PackFile.Writer writer, String id,
+                             byte[] previous, Map<String, String> bases,
+                             HashMap<String, Integer> depths)
+        throws IOException {
+        String type = type(id);
+        long size = size(id);
+        depths.put(id, 0);
+        if (size > DELTA_LIMIT) {
+            try (InputStream in = openContents(id)) {
+                writer.add(id, type, size, in);
+            }
+            return null;
+        }
+        byte[] contents = read(id);
+        String base = bases.get(id);
+        if (base != null && type.equals(BLOB) && depths.containsKey(base)
+                && depths.get(base) < PackFile.MAX_DEPTH
+                && (previous != null || size(base) <= DELTA_LIMIT)) {
+            byte[] baseContents = previous != null ? previous : read(base);
+            byte[] delta = Delta.create(baseContents, contents);
+            if (delta.length < contents.length / 2) {
+                writer.add(id, type, size, base, delta);
+                depths.put(id, depths.get(base) + 1);
+                return contents;
+            }
+        }
+        writer.add(id, type, size, null, contents);
+        return contents;
+    }
+
+    /** Getter method for the size of object ID.
+     * @return size in bytes **/
+    long size(String id) {
+        if (!fileFor(id).isFile()) {
+            PackFile pack = packFor(id);
+            if (pack == null) {
+                throw new GitletException("No object with that id exists.");
+            }
+            return pack.size(id);
+        }
+        try (InputStream in = open(id)) {
+            return Long.parseLong(readHeader(in)[1]);
+        } catch (IOException excp) {
+            throw new IllegalArgumentException(excp.getMessage());
+        }
+    }
+
+    /** Opens the contents of object ID for reading.
+     * @return stream, to be closed by the caller **/
+    InputStream openContents(String id) {
+        if (!fileFor(id).isFile()) {
+            PackFile pack = packFor(id);
+            if (pack == null) {
+                throw new GitletException("No object with that id exists.");
+            }
+            return pack.openContents(id);
+        }
+        InputStream in = null;
+        try {
+            in = open(id);
+            readHeader(in);
+            return in;
+        } catch (IOException excp) {
+            try {
+                if (in != null) {
+                    in.close();
+                }
+            } catch (IOException ignored) {
+                excp.addSuppressed(ignored);
+            }
+            throw new IllegalArgumentException(excp.getMessage());
+        }
+    }
+
+    /** Opens the inflated stream of object ID.
+     * @return stream positioned at the header **/
+    private InputStream open(String id) throws IOException {
+        File f = fileFor(id);
+        if (!f.isFile()) {
+            throw new GitletException("No object with that id exists.");
+        }
+        return new InflaterInputStream(new BufferedInputStream(
+                Files.newInputStream(f.toPath()), BUFFER_SIZE));
+    }
+
+    /** Returns the header bytes for an object of TYPE and LENGTH. **/
+    static byte[] header(String type, long length) {
+        return (type + " " + length + "\0").getBytes(StandardCharsets.UTF_8);
+    }
+
+    /** Reads the header from IN.
+     * @return the type and the length of the contents **/
+    static String[] readHeader(InputStream in) throws IOException {
+        StringBuilder header = new StringBuilder();
+        for (int c = in.read(); c != 0; c = in.read()) {
+            if (c < 0) {
+                throw new IOException("truncated object header");
+            }
+            header.append((char) c);
+        }
+        return header.toString().split(" ");
+    }
+}
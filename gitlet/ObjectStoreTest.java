@@ -0,0 +1,55 @@
+package gitlet;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Random;
+
+/** Tests of the loose object store.
+ *  @author tomzheng
+ */
+public class ObjectStoreTest {
+
+    /** Returns a fresh temporary directory. */
+    static File tempDir() throws IOException {
+        File dir = Files.createTempDirectory("gitlet").toFile();
+        dir.deleteOnExit();
+        return dir;
+    }
+
+    @Test
+    public void roundTrip() throws IOException {
+        ObjectStore objects = new ObjectStore(tempDir());
+        objects.create();
+        byte[] contents = "This is a wug.\n".getBytes(StandardCharsets.UTF_8);
+        String id = objects.writeBlob(contents);
+        assertEquals(Utils.sha1(contents), id);
+        assertTrue(objects.contains(id));
+        assertArrayEquals(contents, objects.read(id));
+        assertArrayEquals(contents, objects.read(id, ObjectStore.BLOB));
+        assertNull(objects.read(id, ObjectStore.COMMIT));
+        assertEquals(id.substring(0, 2),
+                objects.fileFor(id).getParentFile().getName());
+    }
+
+    @Test
+    public void streamedBlobMatchesInMemoryBlob() throws IOException {
+        File folder = tempDir();
+        ObjectStore objects = new ObjectStore(folder);
+        objects.create();
+        byte[] contents = new byte[3 * ObjectStore.BUFFER_SIZE + 17];
+        new Random(61).nextBytes(contents);
+        File file = new File(folder, "big.bin");
+        Utils.writeContents(file, contents);
+        String id = objects.writeBlob(file);
+        assertEquals(Utils.sha1(contents), id);
+        assertArrayEquals(contents, objects.read(id, ObjectStore.BLOB));
+        assertEquals(id, objects.writeBlob(file));
+        assertEquals(1, objects.looseIds().size());
+        assertEquals(1, Utils.join(folder, "objects").list().length);
+    }
+}
@@ -0,0 +1,668 @@
+package gitlet;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+
+/** A pack holding many objects in one file, with a sorted index.
+ *
+ *  NAME.pack holds "PACK", the format version and the number of
+ *  objects, followed by one entry per object: its kind (whole, delta
+ *  or raw), its type, for deltas the 20-byte id of the base, the size
+ *  of the object, the length of the data (which for deltas is that of
+ *  the delta), the length of its stored form, and the stored data
+ *  itself. Raw entries are stored as is; the others deflated.
+ *
+ *  NAME.idx holds "GIDX", the version, the number of objects and a
+ *  256-entry fan-out table counting the ids whose first byte is at
+ *  most each value, followed by the sorted 20-byte ids, each with
+ *  the offset of its entry in the pack.
+ *
+ *  Both files are read through memory maps rather than copied onto the
+ *  heap, and raw entries are copied out with FileChannel.transferTo.
+ *
+ * @author tomzheng
+ */
+class PackFile {
+
+    /** Version of the pack and index formats. **/
+    static final int VERSION = 2;
+
+    /** Kind of entries holding a whole object. **/
+    static final int WHOLE = 0;
+
+    /** Kind of entries holding a delta against another object. **/
+    static final int DELTA = 1;
+
+    /** Kind of entries holding a whole object without compression,
+     *  used when deflating does not make it smaller. **/
+    static final int RAW = 2;
+
+    /** Longest chain of deltas to follow when reading an object. **/
+    static final int MAX_DEPTH = 50;
+
+    /** Object types, indexed by their code in the pack. **/
+    static final String[] TYPES = {
+        ObjectStore.BLOB, ObjectStore.COMMIT, ObjectStore.TREE
+    };
+
+    /** Length of a binary id. **/
+    static final int ID_BYTES = 20;
+
+    /** Length of the index header and fan-out table. **/
+    private static final int IDX_HEADER = 12 + 256 * 4;
+
+    /** Length of one index record. **/
+    private static final int IDX_RECORD = ID_BYTES + 8;
+
+    /** The pack file. **/
+    private final File _pack;
+
+    /** The index file. **/
+    private final File _idx;
+
+    /** Largest part of a pack mapped into memory at once. **/
+    private static final long MAP_WINDOW = 1L << 30;
+
+    /** The index, mapped into memory on demand. **/
+    private ByteBuffer _index;
+
+    /** The fan-out table, loaded with the index. **/
+    private int[] _fanout;
+
+    /** Constructor for the pack whose index is IDX. **/
+    PackFile(File idx) {
+        _idx = idx;
+        String name = idx.getName();
+        _pack = new File(idx.getParentFile(),
+                name.substring(0, name.length() - ".idx".length())
+                + ".pack");
+    }
+
+    /** Getter method for the pack file.
+     * @return file **/
+    File packFile() {
+        return _pack;
+    }
+
+    /** Getter method for the index file.
+     * @return file **/
+    File indexFile() {
+        return _idx;
+    }
+
+    /** Checks whether the pack holds object ID.
+     * @return boolean **/
+    boolean contains(String id) {
+        return offset(id) >= 0;
+    }
+
+    /** Getter method for the ids of all objects in the pack.
+     * @return ids in sorted order **/
+    List<String> ids() {
+        ByteBuffer index = index();
+        int count = _fanout[255];
+        List<String> result = new ArrayList<>(count);
+        byte[] id = new byte[ID_BYTES];
+        for (int i = 0; i < count; i++) {
+            index.get(IDX_HEADER + i * IDX_RECORD, id);
+            result.add(toHex(id));
+        }
+        return result;
+    }
+
+    /** Getter method for the type of object ID.
+     * @return type **/
+    String type(String id) {
+        try (FileChannel pack = FileChannel.open(_pack.toPath())) {
+            return entry(pack, find(id)).type;
+        } catch (IOException excp) {
+            throw new IllegalArgumentException(excp.getMessage());
+        }
+    }
+
+    /** Getter method for the size of object ID.
+     * @return size in bytes **/
+    long size(String id) {
+        try (FileChannel pack = FileChannel.open(_pack.toPath())) {
+            return entry(pack, find(id)).size;
+        } catch (IOException excp) {
+            throw new IllegalArgumentException(excp.getMessage());
+        }
+    }
+
+    /** Opens the contents of object ID for reading. Whole entries are
+     *  streamed from the pack; deltas are rebuilt in memory.
+     * @return stream, to be closed by the caller **/
+    InputStream openContents(String id) {
+        FileChannel pack = null;
+        try {
+            pack = FileChannel.open(_pack.toPath());
+            Entry entry = entry(pack, find(id));
+            if (entry.kind == DELTA) {
+                byte[] data = contents(pack, entry, 0);
+                pack.close();
+                return new ByteArrayInputStream(data);
+            }
+            InputStream in = Channels.newInputStream(
+                    pack.position(entry.dataOffset));
+            if (entry.kind == RAW) {
+                return in;
+            }
+            return new InflaterInputStream(
+                    new BufferedInputStream(in, ObjectStore.BUFFER_SIZE));
+        } catch (IOException | DataFormatException excp) {
+            try {
+                if (pack != null) {
+                    pack.close();
+                }
+            } catch (IOException ignored) {
+                excp.addSuppressed(ignored);
+            }
+            throw new IllegalArgumentException(excp.getMessage());
+        }
+    }
+
+    /** Getter method for the contents of object ID, which must have
+     *  type TYPE unless TYPE is null.
+     * @return contents, or null if the object has another type **/
+    byte[] read(String id, String type) {
+        try (FileChannel pack = FileChannel.open(_pack.toPath())) {
+            Entry entry = entry(pack, find(id));
+            if (type != null && !type.equals(entry.type)) {
+                return null;
+            }
+            return contents(pack, entry, 0);
+        } catch (IOException | DataFormatException excp) {
+            throw new IllegalArgumentException(excp.getMessage());
+        }
+    }
+
+    /** Writes the contents of object ID to DEST. Stored entries are
+     *  transferred straight from the pack and compressed ones are
+     *  inflated through a fixed-size buffer, so neither is held in
+     *  memory whole; only deltas are rebuilt in memory. **/
+    void copyTo(String id, File dest) {
+        try (FileChannel pack = FileChannel.open(_pack.toPath());
+             FileChannel out = FileChannel.open(dest.toPath(),
+                     StandardOpenOption.WRITE, StandardOpenOption.CREATE,
+                     StandardOpenOption.TRUNCATE_EXISTING)) {
+            Entry entry = entry(pack, find(id));
+            if (entry.kind == RAW) {
+                long n = 0;
+                while (n < entry.length) {
+                    n += pack.transferTo(entry.dataOffset + n,
+                            entry.length - n, out);
+                }
+            } else if (entry.kind == WHOLE) {
+                inflate(pack, entry, out);
+            } else {
+                ByteBuffer data = ByteBuffer.wrap(contents(pack, entry, 0));
+                while (data.hasRemaining()) {
+                    out.write(data);
+                }
+            }
+        } catch (IOException | DataFormatException excp) {
+            throw new IllegalArgumentException(excp.getMessage());
+        }
+    }
+
+    /** The header of an entry in the pack. **/
+    private static class Entry {
+        /** WHOLE, DELTA or RAW. **/
+        private int kind;
+        /** Type of the object. **/
+        private String type;
+        /** Id of the base of a delta. **/
+        private String baseId;
+        /** Size of the object. **/
+        private long size;
+        /** Length of the stored data once inflated. **/
+        private long length;
+        /** Length of the stored data. **/
+        private long stored;
+        /** Offset of the stored data in the pack. **/
+        private long dataOffset;
+    }
+
+    /** Reads the header of the entry at OFFSET of PACK.
+     * @return entry **/
+    private Entry entry(FileChannel pack, long offset) throws IOException {
+        ByteBuffer header = read(pack, offset, 2 + ID_BYTES + 24);
+        Entry entry = new Entry();
+        entry.kind = header.get();
+        entry.type = TYPES[header.get()];
+        if (entry.kind == DELTA) {
+            byte[] baseId = new byte[ID_BYTES];
+            header.get(baseId);
+            entry.baseId = toHex(baseId);
+        }
+        entry.size = header.getLong();
+        entry.length = header.getLong();
+        entry.stored = header.getLong();
+        entry.dataOffset = offset + header.position();
+        return entry;
+    }
+
+    /** Reads up to LENGTH bytes at OFFSET of PACK.
+     * @return buffer ready for reading **/
+    private static ByteBuffer read(FileChannel pack, long offset, int length)
+        throws IOException {
+        ByteBuffer buf = ByteBuffer.allocate(length);
+        while (buf.hasRemaining()
+                && pack.read(buf, offset + buf.position()) > 0) {
+            continue;
+        }
+        buf.flip();
+        return buf;
+    }
+
+    /** Maps the stored data of ENTRY in PACK into memory.
+     * @return buffer **/
+    private static ByteBuffer map(FileChannel pack, Entry entry)
+        throws IOException {
+        return pack.map(FileChannel.MapMode.READ_ONLY, entry.dataOffset,
+                entry.stored);
+    }
+
+    /** Returns the contents of ENTRY in PACK, which is DEPTH deltas
+     *  away from the object first asked for. **/
+    private byte[] contents(FileChannel pack, Entry entry, int depth)
+        throws IOException, DataFormatException {
+        if (depth > MAX_DEPTH) {
+            throw new IOException("delta chain too long");
+        }
+        ByteBuffer stored = map(pack, entry);
+        byte[] data = new byte[(int) entry.length];
+        if (entry.kind == RAW) {
+            stored.get(data);
+        } else {
+            inflate(stored, data);
+        }
+        if (entry.kind != DELTA) {
+            return data;
+        }
+        long baseOffset = offset(entry.baseId);
+        if (baseOffset < 0) {
+            throw new IOException("delta base missing from pack");
+        }
+        return Delta.apply(contents(pack, entry(pack, baseOffset),
+                depth + 1), data);
+    }
+
+    /** Returns the offset of the entry for ID.
+     *  Throws GitletException if there is none. **/
+    private long find(String id) {
+        long offset = offset(id);
+        if (offset < 0) {
+            throw new GitletException("No object with that id exists.");
+        }
+        return offset;
+    }
+
+    /** Returns the offset of the entry for ID, or -1 if there is none,
+     *  by binary search in the index. **/
+    private long offset(String id) {
+        byte[] key = toBytes(id);
+        ByteBuffer index = index();
+        int first = key[0] & 0xff;
+        int lo = first == 0 ? 0 : _fanout[first - 1];
+        int hi = _fanout[first] - 1;
+        while (lo <= hi) {
+            int mid = (lo + hi) >>> 1;
+            int record = IDX_HEADER + mid * IDX_RECORD;
+            int cmp = 0;
+            for (int i = 0; i < ID_BYTES && cmp == 0; i++) {
+                cmp = Integer.compare(index.get(record + i) & 0xff,
+                        key[i] & 0xff);
+            }
+            if (cmp == 0) {
+                return index.getLong(record + ID_BYTES);
+            } else if (cmp < 0) {
+                lo = mid + 1;
+            } else {
+                hi = mid - 1;
+            }
+        }
+        return -1;
+    }
+
+    /** Returns the index, mapping it into memory if needed. **/
+    private synchronized ByteBuffer index() {
+        if (_index == null) {
+            try (FileChannel idx = FileChannel.open(_idx.toPath())) {
+                ByteBuffer index = idx.map(FileChannel.MapMode.READ_ONLY,
+                        0, idx.size());
+                byte[] magic = new byte[4];
+                index.get(magic);
+                int version = index.getInt();
+                if (!new String(magic, StandardCharsets.US_ASCII)
+                        .equals("GIDX") || version != VERSION) {
+                    throw new IOException("not a pack index: " + _idx);
+                }
+                index.getInt();
+                int[] fanout = new int[256];
+                for (int i = 0; i < 256; i++) {
+                    fanout[i] = index.getInt();
+                }
+                _fanout = fanout;
+                _index = index;
+            } catch (IOException excp) {
+                throw new IllegalArgumentException(excp.getMessage());
+            }
+        }
+        return _index;
+    }
+
+    /** Inflates STORED into DATA, which has exactly the right size. **/
+    private static void inflate(ByteBuffer stored, byte[] data)
+        throws DataFormatException {
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(stored);
+            int n = 0;
+            while (n < data.length && !inflater.finished()) {
+                if (inflater.needsInput()) {
+                    throw new DataFormatException("truncated pack entry");
+                }
+                n += inflater.inflate(data, n, data.length - n);
+            }
+        } finally {
+            inflater.end();
+        }
+    }
+
+    /** Inflates the data of ENTRY in PACK into OUT through a fixed-size
+     *  buffer, mapping at most MAP_WINDOW bytes of the pack at a time. **/
+    private static void inflate(FileChannel pack, Entry entry,
+                                WritableByteChannel out)
+        throws IOException, DataFormatException {
+        Inflater inflater = new Inflater();
+        try {
+            long mapped = 0;
+            ByteBuffer buf = ByteBuffer.allocate(ObjectStore.BUFFER_SIZE);
+            while (!inflater.finished()) {
+                if (inflater.needsInput()) {
+                    if (mapped >= entry.stored) {
+                        throw new DataFormatException("truncated pack entry");
+                    }
+                    long len = Math.min(MAP_WINDOW, entry.stored - mapped);
+                    inflater.setInput(pack.map(FileChannel.MapMode.READ_ONLY,
+                            entry.dataOffset + mapped, len));
+                    mapped += len;
+                }
+                buf.clear();
+                inflater.inflate(buf);
+                buf.flip();
+                while (buf.hasRemaining()) {
+                    out.write(buf);
+                }
+            }
+        } finally {
+            inflater.end();
+        }
+    }
+
+    /** Returns the 20 bytes of the hexadecimal id HEX. **/
+    static byte[] toBytes(String hex) {
+        return Sha1.fromHex(hex);
+    }
+
+    /** Returns the hexadecimal form of the id BYTES. **/
+    static String toHex(byte[] bytes) {
+        return Sha1.hex(bytes);
+    }
+
+    /** An id and the offset of its entry in a pack. **/
+    private static class IndexEntry {
+        /** The binary id. **/
+        private final byte[] id;
+        /** The offset in the pack. **/
+        private final long offset;
+
+        /** Constructor for the entry of ID at OFFSET. **/
+        IndexEntry(byte[] id, long offset) {
+            this.id = id;
+            this.offset = offset;
+        }
+    }
+
+    /** Writes a new pack into a directory, one object at a time. **/
+    static class Writer {
+
+        /** Directory receiving the pack. **/
+        private final File _dir;
+
+        /** The pack being written, under a temporary name. **/
+        private final File _temp;
+
+        /** Counts the bytes written to _temp. **/
+        private final CountingOutputStream _counter;
+
+        /** Stream to _temp. **/
+        private final DataOutputStream _out;
+
+        /** Ids written so far, with their offsets. **/
+        private final List<IndexEntry> _entries = new ArrayList<>();
+
+        /** Stored lengths to fill in once known, as pairs of the offset
+         *  of the field and its value. **/
+        private final List<long[]> _patches = new ArrayList<>();
+
+        /** Compression level. **/
+        private final int _level;
+
+        /** Constructor for a pack in DIR, compressed at LEVEL. **/
+        Writer(File dir, int level) throws IOException {
+            _dir = dir;
+            _dir.mkdirs();
+            _level = level;
+            _temp = File.createTempFile("pack", ".tmp", dir);
+            _counter = new CountingOutputStream(new BufferedOutputStream(
+                    Files.newOutputStream(_temp.toPath()),
+                    ObjectStore.BUFFER_SIZE));
+            _out = new DataOutputStream(_counter);
+            _out.writeBytes("PACK");
+            _out.writeInt(VERSION);
+            _out.writeInt(0);
+        }
+
+        /** Adds object ID of TYPE, whose contents are SIZE bytes long.
+         *  If BASEID is not null, DATA is a delta against that object,
+         *  and otherwise DATA is the whole contents. **/
+        void add(String id, String type, long size, String baseId,
+                 byte[] data) throws IOException {
+            byte[] stored = deflate(data);
+            int kind = baseId == null ? WHOLE : DELTA;
+            if (kind == WHOLE && stored.length >= data.length) {
+                stored = data;
+                kind = RAW;
+            }
+            writeHeader(id, kind, type, baseId, size, data.length);
+            _out.writeLong(stored.length);
+            _out.write(stored);
+        }
+
+        /** Adds object ID of TYPE, copying its SIZE bytes from IN through
+         *  a fixed-size buffer. It is stored raw if its first block does
+         *  not compress. **/
+        void add(String id, String type, long size, InputStream in)
+            throws IOException {
+            byte[] buf = new byte[ObjectStore.BUFFER_SIZE];
+            int first = in.readNBytes(buf, 0, (int) Math.min(size,
+                    buf.length));
+            boolean raw = _level == 0
+                    || deflate(Arrays.copyOf(buf, first)).length >= first;
+            writeHeader(id, raw ? RAW : WHOLE, type, null, size, size);
+            long field = _counter.count();
+            _out.writeLong(size);
+            OutputStream out = _out;
+            Deflater deflater = null;
+            if (!raw) {
+                deflater = new Deflater(_level);
+                out = new DeflaterOutputStream(_out, deflater,
+                        ObjectStore.BUFFER_SIZE);
+            }
+            try {
+                out.write(buf, 0, first);
+                long left = size - first;
+                while (left > 0) {
+                    int n = in.read(buf, 0, (int) Math.min(left, buf.length));
+                    if (n < 0) {
+                        throw new IOException("object " + id + " is short");
+                    }
+                    out.write(buf, 0, n);
+                    left -= n;
+                }
+                if (!raw) {
+                    ((DeflaterOutputStream) out).finish();
+                    _patches.add(new long[] {
+                        field, _counter.count() - field - 8
+                    });
+                }
+            } finally {
+                if (deflater != null) {
+                    deflater.end();
+                }
+            }
+        }
+
+        /** Writes the start of the entry for ID: its KIND, TYPE, the id
+         *  BASEID of its base if it is a delta, its SIZE and the LENGTH
+         *  of its data before compression. **/
+        private void writeHeader(String id, int kind, String type,
+                                 String baseId, long size, long length)
+            throws IOException {
+            _entries.add(new IndexEntry(toBytes(id), _counter.count()));
+            _out.writeByte(kind);
+            _out.writeByte(Arrays.asList(TYPES).indexOf(type));
+            if (baseId != null) {
+                _out.write(toBytes(baseId));
+            }
+            _out.writeLong(size);
+            _out.writeLong(length);
+        }
+
+        /** Finishes the pack and writes its index.
+         * @return the new pack **/
+        PackFile finish() throws IOException {
+            _out.close();
+            try (RandomAccessFile raf = new RandomAccessFile(_temp, "rw")) {
+                raf.seek(8);
+                raf.writeInt(_entries.size());
+                for (long[] patch : _patches) {
+                    raf.seek(patch[0]);
+                    raf.writeLong(patch[1]);
+                }
+            }
+            Collections.sort(_entries, (a, b) ->
+                    Arrays.compareUnsigned(a.id, b.id));
+            ByteArrayOutputStream names = new ByteArrayOutputStream();
+            for (IndexEntry entry : _entries) {
+                names.write(entry.id);
+            }
+            String name = "pack-" + Utils.sha1(names.toByteArray());
+            File idx = new File(_dir, name + ".idx");
+            File tempIdx = new File(_dir, name + ".idx.tmp");
+            try (DataOutputStream out = new DataOutputStream(
+                    new BufferedOutputStream(
+                            Files.newOutputStream(tempIdx.toPath())))) {
+                out.writeBytes("GIDX");
+                out.writeInt(VERSION);
+                out.writeInt(_entries.size());
+                int[] fanout = new int[256];
+                for (IndexEntry entry : _entries) {
+                    fanout[entry.id[0] & 0xff] += 1;
+                }
+                int total = 0;
+                for (int i = 0; i < 256; i++) {
+                    total += fanout[i];
+                    out.writeInt(total);
+                }
+                for (IndexEntry entry : _entries) {
+                    out.write(entry.id);
+                    out.writeLong(entry.offset);
+                }
+            }
+            PackFile pack = new PackFile(idx);
+            Files.move(_temp.toPath(), pack.packFile().toPath(),
+                    StandardCopyOption.REPLACE_EXISTING);
+            Files.move(tempIdx.toPath(), idx.toPath(),
+                    StandardCopyOption.REPLACE_EXISTING);
+            return pack;
+        }
+
+        /** Returns DATA deflated at the writer's level. **/
+        private byte[] deflate(byte[] data) {
+            Deflater deflater = new Deflater(_level);
+            try {
+                deflater.setInput(data);
+                deflater.finish();
+                ByteArrayOutputStream out = new ByteArrayOutputStream();
+                byte[] buf = new byte[8192];
+                while (!deflater.finished()) {
+                    int n = deflater.deflate(buf);
+                    out.write(buf, 0, n);
+                }
+                return out.toByteArray();
+            } finally {
+                deflater.end();
+            }
+        }
+    }
+
+    /** An output stream counting the bytes written through it. **/
+    private static class CountingOutputStream extends FilterOutputStream {
+
+        /** Bytes written so far. **/
+        private long _count;
+
+        /** Constructor for a stream writing to OUT. **/
+        CountingOutputStream(OutputStream out) {
+            super(out);
+        }
+
+        /** Getter method for the number of bytes written.
+         * @return count **/
+        long count() {
+            return _count;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            out.write(b);
+            _count += 1;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+            _count += len;
+        }
+    }
+}
@@ -0,0 +1,95 @@
+package gitlet;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Random;
+
+/** Tests of packs.
+ *  @author tomzheng
+ */
+public class PackFileTest {
+
+    @Test
+    public void repackKeepsEveryObject() throws IOException {
+        File folder = ObjectStoreTest.tempDir();
+        ObjectStore objects = new ObjectStore(folder);
+        objects.create();
+        HashMap<String, String> bases = new HashMap<>();
+        String previous = null;
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < 2000; i++) {
+            text.append("line ").append(i).append('\n');
+        }
+        String[] ids = new String[20];
+        byte[][] versions = new byte[20][];
+        for (int v = 0; v < versions.length; v++) {
+            text.append("version ").append(v).append('\n');
+            versions[v] = text.toString().getBytes(StandardCharsets.UTF_8);
+            ids[v] = objects.writeBlob(versions[v]);
+            if (previous != null) {
+                bases.put(ids[v], previous);
+            }
+            previous = ids[v];
+        }
+        objects.write(Utils.sha1("commit"), ObjectStore.COMMIT,
+                "commit".getBytes(StandardCharsets.UTF_8));
+        objects.repack(bases);
+        assertTrue(objects.looseIds().isEmpty());
+        assertEquals(1, objects.packs().size());
+        PackFile pack = objects.packs().get(0);
+        assertEquals(ids.length + 1, pack.ids().size());
+        assertTrue(pack.packFile().length() < versions[0].length);
+        for (int v = 0; v < versions.length; v++) {
+            assertArrayEquals(versions[v], objects.read(ids[v]));
+        }
+        assertNull(objects.read(ids[0], ObjectStore.COMMIT));
+        assertEquals(ObjectStore.COMMIT, objects.type(Utils.sha1("commit")));
+        assertFalse(objects.contains(Utils.sha1("missing")));
+
+        ObjectStore reopened = new ObjectStore(folder);
+        assertArrayEquals(versions[7], reopened.read(ids[7]));
+        reopened.repack(new HashMap<>());
+        assertEquals(1, Utils.plainFilenamesIn(
+                Utils.join(folder, "objects", "pack")).size() / 2);
+        assertArrayEquals(versions[7], reopened.read(ids[7]));
+    }
+
+    @Test
+    public void copyToStreamsEachKindOfEntry() throws IOException {
+        File folder = ObjectStoreTest.tempDir();
+        ObjectStore objects = new ObjectStore(folder);
+        objects.create();
+        byte[] noise = new byte[100000];
+        new Random(61).nextBytes(noise);
+        byte[] text = new String(new char[100000]).replace('\0', 'w')
+                .getBytes(StandardCharsets.UTF_8);
+        byte[] edited = text.clone();
+        edited[500] = 'x';
+        String raw = objects.writeBlob(noise);
+        String whole = objects.writeBlob(text);
+        String delta = objects.writeBlob(edited);
+        HashMap<String, String> bases = new HashMap<>();
+        bases.put(delta, whole);
+        objects.repack(bases);
+        File out = new File(folder, "out");
+        objects.copyTo(raw, out);
+        assertArrayEquals(noise, Utils.readContents(out));
+        objects.copyTo(whole, out);
+        assertArrayEquals(text, Utils.readContents(out));
+        objects.copyTo(delta, out);
+        assertArrayEquals(edited, Utils.readContents(out));
+        assertEquals(edited.length, objects.size(delta));
+        try (InputStream in = objects.openContents(raw)) {
+            assertArrayEquals(noise, in.readNBytes(noise.length));
+        }
+        try (InputStream in = objects.openContents(whole)) {
+            assertArrayEquals(text, in.readAllBytes());
+        }
+    }
+}
@@ -1,16 +1,33 @@
 package gitlet;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.TreeMap;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Objects;
 import java.io.File;
-import java.io.Serializable;
+import java.io.IOException;
+import java.io.BufferedOutputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
 import java.util.Set;
 import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
-/** Repository class.
+/** Repository class. Only the pieces of metadata a command
+ * touches are loaded, and only the changed pieces are saved.
  * @author tomzheng
  */
-public class Repository implements Serializable {
+public class Repository {
+
+    /** Most commits left out of the commit graph before it is
+     * rewritten, which bounds the commits scanned to resolve an
+     * abbreviated id. **/
+    static final int GRAPH_SLACK = 256;
 
     /** Current directory. **/
     private File currentDir;
@@ -18,8 +35,14 @@ public class Repository implements Serializable {
     /** Folder. **/
     private File folder;
 
-    /** List of commits. **/
-    private ArrayList<String> commits;
+    /** The on-disk metadata. **/
+    private MetadataStore store;
+
+    /** The store of blobs and commits. **/
+    private ObjectStore objects;
+
+    /** List of commits, loaded on demand. **/
+    private List<String> commits;
 
     /** Hash of head Commit. **/
     private String head;
@@ -27,57 +50,396 @@ public class Repository implements Serializable {
     /** Hash of current branch. **/
     private String _currBranch;
 
-    /** The headcommit. **/
+    /** The headcommit, loaded on demand. **/
     private Commit headCommit;
 
-    /** Map of all branches. **/
-    private TreeMap<String, String> _branches;
+    /** Branch updates not yet saved; a null value removes the branch. **/
+    private TreeMap<String, String> _refUpdates;
 
-    /** The origin. **/
-    private File origin = new File(System.getProperty("user.dir"));
+    /** Whether the current branch changed. **/
+    private boolean _headDirty;
 
-    /** The staging area for files. **/
+    /** The staging area for files, loaded on demand. **/
     private StagingArea _stagingarea;
 
-    /** Hashmap mapping hashes to commits. **/
+    /** Whether the staging area changed. **/
+    private boolean _indexDirty;
+
+    /** The commit graph, loaded on demand. **/
+    private CommitGraph _graph;
+
+    /** Whether the commit graph was looked for. **/
+    private boolean _graphRead;
+
+    /** Whether commits were made since loading. **/
+    private boolean _commitsAdded;
+
+    /** Files of the trees read so far, by root tree hash. **/
+    private HashMap<ObjectId, HashMap<String, ObjectId>> _files;
+
+    /** Hashmap caching the commits read so far. **/
     private HashMap<String, Commit> hashToCommit;
 
+    /** Constructor shared by init and load. **/
+    private Repository(File dir) {
+        currentDir = dir;
+        folder = Utils.join(currentDir, ".gitlet");
+        objects = new ObjectStore(folder);
+        store = new MetadataStore(folder, objects);
+        hashToCommit = new HashMap<>();
+        _files = new HashMap<>();
+        _refUpdates = new TreeMap<>();
+    }
+
     /** Constructor for repository. **/
     public Repository() {
-        currentDir = new File(".");
-        folder = Utils.join(currentDir, ".gitlet");
-        commits = new ArrayList<String>();
-        headCommit = new Commit();
+        this(new File("."));
+        initialise();
+    }
+
+    /** Creates a repository in DIR.
+     * @return repository **/
+    static Repository init(File dir) {
+        Repository r = new Repository(dir);
+        r.initialise();
+        return r;
+    }
+
+    /** Writes out the skeleton and initial commit of a new repository. **/
+    private void initialise() {
+        store.create();
+        objects.create();
+        ObjectId tree = new Tree().write(objects);
+        headCommit = new Commit(tree.toString());
         head = headCommit.getHash();
-        _branches = new TreeMap<String, String>();
         _currBranch = "master";
-        Utils.writeContents(Utils.join(folder,
-                head), Utils.serialize(headCommit));
-        commits.add(head);
-        hashToCommit = new HashMap<>();
+        store.writeCommit(headCommit);
         hashToCommit.put(head, headCommit);
-        _branches.put(_currBranch, head);
-        getCommitWithHash(head).setMessage("initial commit");
-        _stagingarea = new StagingArea(headCommit);
+        _refUpdates.put(_currBranch, head);
+        _headDirty = true;
+        HashMap<String, ObjectId> trees = new HashMap<>();
+        trees.put("", tree);
+        _stagingarea = new StagingArea(new HashMap<>(), trees);
+        _indexDirty = true;
+        save();
+    }
+
+    /** Opens the repository in the current directory.
+     * @return repository **/
+    public static Repository load() {
+        return load(new File("."));
+    }
+
+    /** Opens the repository in DIR, first converting it to the current
+     * layout if it was made by the first version of gitlet.
+     * @return repository **/
+    static Repository load(File dir) {
+        long start = Trace.start();
+        if (Migration.needed(Utils.join(dir, ".gitlet"))) {
+            Migration.run(Utils.join(dir, ".gitlet"));
+        }
+        Repository r = new Repository(dir);
+        r._currBranch = r.store.readHead();
+        r.head = r.store.readRef(r._currBranch);
+        Trace.end(Trace.Phase.LOAD, start, 0);
+        return r;
+    }
+
+    /** Checks whether the current directory holds a repository.
+     * @return boolean **/
+    public static boolean exists() {
+        return exists(new File("."));
+    }
+
+    /** Checks whether DIR holds a repository, in the current layout or
+     * in that of the first version of gitlet.
+     * @return boolean **/
+    static boolean exists(File dir) {
+        File folder = Utils.join(dir, ".gitlet");
+        return MetadataStore.exists(folder) || Migration.needed(folder);
+    }
+
+    /** Writes out every piece of metadata changed since loading. **/
+    public void save() {
+        for (Map.Entry<String, String> ref: _refUpdates.entrySet()) {
+            if (ref.getValue() == null) {
+                store.deleteRef(ref.getKey());
+            } else {
+                store.writeRef(ref.getKey(), ref.getValue());
+            }
+        }
+        _refUpdates.clear();
+        if (_headDirty) {
+            store.writeHead(_currBranch);
+            _headDirty = false;
+        }
+        if (_indexDirty) {
+            store.writeIndex(_stagingarea);
+            _indexDirty = false;
+        }
+        if (_commitsAdded) {
+            int covered = getGraph() == null ? 0 : _graph.size();
+            int uncovered = store.commitCount() - covered;
+            if (uncovered > Math.min(covered / 8, GRAPH_SLACK)) {
+                writeGraph();
+            }
+            _commitsAdded = false;
+        }
+    }
+
+    /** Getter method for the commit graph.
+     * @return graph, or null if none was written **/
+    private CommitGraph getGraph() {
+        if (!_graphRead) {
+            _graph = store.readGraph();
+            _graphRead = true;
+        }
+        return _graph;
+    }
+
+    /** Rewrites the commit graph to cover every commit. The commits it
+     * covers are the first ones made, so only those after them are
+     * listed and read. **/
+    private void writeGraph() {
+        int covered = getGraph() == null ? 0 : _graph.size();
+        store.writeGraph(_graph, getCommits(covered, Integer.MAX_VALUE));
+        _graphRead = false;
+        _graph = null;
+    }
+
+    /** Getter method for the tip of BRANCH.
+     * @return hash, or null if there is no such branch **/
+    private String getBranch(String branch) {
+        if (_refUpdates.containsKey(branch)) {
+            return _refUpdates.get(branch);
+        }
+        return store.readRef(branch);
+    }
+
+    /** Points BRANCH at HASH. **/
+    private void setBranch(String branch, String hash) {
+        _refUpdates.put(branch, hash);
+    }
+
+    /** Replaces the staging area with one matching commit C, which
+     * keeps the time of the index the old one was read from. **/
+    private void resetStagingArea(Commit c) {
+        HashMap<String, ObjectId> trees = new HashMap<>();
+        HashMap<String, ObjectId> files = new HashMap<>();
+        Tree.flatten(objects, treeOf(c), "", files, trees);
+        long time = _stagingarea == null ? 0 : _stagingarea.getIndexTime();
+        _stagingarea = new StagingArea(files, trees);
+        _stagingarea.setIndexTime(time);
+        _indexDirty = true;
+    }
+
+    /** Getter method for the files of commit C.
+     * @return map from path to blob hash **/
+    public HashMap<String, ObjectId> getFiles(Commit c) {
+        HashMap<String, ObjectId> files = _files.get(treeOf(c));
+        if (files == null) {
+            files = new HashMap<>();
+            Tree.flatten(objects, treeOf(c), "", files, null);
+            _files.put(treeOf(c), files);
+        }
+        return files;
+    }
+
+    /** Getter method for the hash of the root tree of commit C.
+     * @return hash **/
+    private static ObjectId treeOf(Commit c) {
+        return ObjectId.of(c.getTreeHash());
+    }
+
+    /** Getter method for the commit history, as walked to find
+     * merge bases.
+     * @return history **/
+    private MergeBase.History history() {
+        return new MergeBase.History() {
+            @Override
+            public List<String> parents(String id) {
+                return getParents(id);
+            }
+
+            @Override
+            public int generation(String id) {
+                return Repository.this.generation(id);
+            }
+        };
+    }
+
+    /** Checks whether the commit graph covers commit ID, so that its
+     * time and parents are known without reading it.
+     * @return boolean **/
+    public boolean inGraph(String id) {
+        return getGraph() != null && _graph.find(id) >= 0;
+    }
+
+    /** Getter method for the time of commit ID, read from the commit
+     * graph where it covers ID.
+     * @return milliseconds since the epoch **/
+    public long getTime(String id) {
+        int index = getGraph() == null ? -1 : _graph.find(id);
+        if (index >= 0) {
+            return _graph.timestamp(index);
+        }
+        return readCommit(id).getTimestamp().getTime();
+    }
+
+    /** Getter method for the parents of commit ID, read from the
+     * commit graph where it covers ID.
+     * @return ids, first parent first **/
+    public List<String> getParents(String id) {
+        int index = getGraph() == null ? -1 : _graph.find(id);
+        if (index >= 0) {
+            return _graph.parentIds(index);
+        }
+        return getCommitWithHash(id).getParents();
+    }
+
+    /** Getter method for the first parent of commit ID.
+     * @return id, or null for the initial commit **/
+    public String getFirstParent(String id) {
+        List<String> parents = getParents(id);
+        return parents.isEmpty() ? null : parents.get(0);
+    }
+
+    /** Checks whether commit ANCESTOR is commit ID or one of its
+     * ancestors. Commits of a generation lower than that of ANCESTOR
+     * cannot lead to it, so they are not walked.
+     * @return boolean **/
+    public boolean isAncestor(String ancestor, String id) {
+        int lowest = generation(ancestor);
+        HashSet<String> seen = new HashSet<>();
+        ArrayDeque<String> pending = new ArrayDeque<>();
+        pending.add(id);
+        seen.add(id);
+        while (!pending.isEmpty()) {
+            String next = pending.poll();
+            if (next.equals(ancestor)) {
+                return true;
+            }
+            for (String parent: getParents(next)) {
+                if (generation(parent) >= lowest && seen.add(parent)) {
+                    pending.add(parent);
+                }
+            }
+        }
+        return false;
+    }
+
+    /** Getter method for the generation of commit ID.
+     * @return generation **/
+    private int generation(String id) {
+        int index = getGraph() == null ? -1 : _graph.find(id);
+        if (index >= 0) {
+            return _graph.generation(index);
+        }
+        return getCommitWithHash(id).getGeneration();
+    }
+
+    /** Getter method for the blob of the file PATH in commit C.
+     * @return hash, or null if C does not track PATH **/
+    private ObjectId blobIn(Commit c, String path) {
+        return Tree.find(objects, treeOf(c), path);
+    }
+
+    /** Returns the files whose blobs differ between the trees FROM
+     * and TO, either of which may be null for no files, mapped to
+     * their blob hashes in FROM and in TO, null where missing. **/
+    private TreeMap<String, ObjectId[]> diff(ObjectId from, ObjectId to) {
+        TreeMap<String, ObjectId[]> changes = new TreeMap<>();
+        Tree.diff(objects, from, to, "", changes);
+        return changes;
+    }
+
+    /** Returns the files whose blobs differ between commits FROM and
+     * TO, as for diff on their trees. **/
+    private TreeMap<String, ObjectId[]> diff(Commit from, Commit to) {
+        return diff(treeOf(from), treeOf(to));
+    }
+
+    /** Stores the trees of the staged files.
+     * @return hash of the root tree **/
+    private ObjectId writeTree() {
+        return Tree.write(objects, getStagingArea().getBranches(),
+                _stagingarea.getTrees());
+    }
+
+    /** Computes the hash of the root tree of the staged files without
+     * storing any tree, putting the trees it builds in BUILT.
+     * @return hash of the root tree **/
+    private ObjectId hashTree(Map<ObjectId, Tree> built) {
+        return Tree.hash(getStagingArea().getBranches(),
+                _stagingarea.getTrees(), built);
+    }
+
+    /** Records the new head commit C. **/
+    private void recordCommit(Commit c) {
+        store.writeCommit(c);
+        hashToCommit.put(c.getHash(), c);
+        _commitsAdded = true;
+        if (commits != null) {
+            commits.add(c.getHash());
+        }
     }
 
     /** Method to add FILE to repository. **/
     public void addFile(String file) {
         File fdir = Utils.join(currentDir, file);
-        String hash = getFileHash(file);
-        Utils.writeContents(Utils.join(folder,
-                hash), Utils.readContents(fdir));
-        _stagingarea.add(file, hash);
+        FileStat stat = FileStat.of(fdir);
+        ObjectId hash = ObjectId.of(objects.writeBlob(fdir));
+        getStagingArea().add(file, hash, stat);
+        _indexDirty = true;
+    }
+
+    /** Method to add all of FILES to repository. The files are hashed
+     * and stored by a pool of worker threads, and the staging area is
+     * updated once they are all done. **/
+    public void addFiles(List<String> files) {
+        if (files.size() == 1) {
+            addFile(files.get(0));
+            return;
+        }
+        int threads = Math.min(files.size(),
+                Runtime.getRuntime().availableProcessors());
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        try {
+            List<FileStat> stats = new ArrayList<>();
+            List<Future<String>> hashes = new ArrayList<>();
+            for (String file: files) {
+                File fdir = Utils.join(currentDir, file);
+                stats.add(FileStat.of(fdir));
+                hashes.add(pool.submit(() -> objects.writeBlob(fdir)));
+            }
+            StagingArea sa = getStagingArea();
+            for (int i = 0; i < files.size(); i++) {
+                sa.add(files.get(i), ObjectId.of(hashes.get(i).get()),
+                        stats.get(i));
+            }
+            _indexDirty = true;
+        } catch (InterruptedException excp) {
+            Thread.currentThread().interrupt();
+            throw new GitletException("Interrupted while adding files.");
+        } catch (ExecutionException excp) {
+            if (excp.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) excp.getCause();
+            }
+            throw new IllegalArgumentException(excp.getCause());
+        } finally {
+            pool.shutdownNow();
+        }
     }
 
     /** Method to remove FILE from repository. **/
     public void removeFile(String file) {
-        if (!_stagingarea.isTracked(file)
-                && !headCommit.isTracked(file)) {
+        if (!getStagingArea().isTracked(file)
+                && blobIn(getHeadCommit(), file) == null) {
             throw new GitletException("No reason to remove the file.");
         }
+        _indexDirty = true;
         if (_stagingarea.remove(file)) {
-            Utils.restrictedDelete(Utils.join(currentDir, file));
+            deleteWorkingFile(file);
         }
     }
 
@@ -86,53 +448,47 @@ public class Repository implements Serializable {
         if (message.isEmpty()) {
             throw new GitletException("Please enter a commit message.");
         }
-        if (_stagingarea.getBranches().equals(headCommit.getTree())) {
+        ObjectId tree = writeTree();
+        if (tree.equals(treeOf(getHeadCommit()))) {
             throw new GitletException("No changes added to the commit.");
         }
-        headCommit = new Commit(_stagingarea, headCommit.getHash(), message);
-        headCommit.setParentHash(head);
-        headCommit.setParent(getCommitWithHash(headCommit.getParentHash()));
+        headCommit = new Commit(tree.toString(), head, null,
+                generation(head) + 1, message);
         head = headCommit.getHash();
-        commits.add(head);
-        hashToCommit.put(head, headCommit);
-        Utils.writeContents(Utils.join(folder,
-                head), Utils.serialize(headCommit));
-        _stagingarea = new StagingArea(headCommit);
-        _branches.put(_currBranch, head);
+        recordCommit(headCommit);
+        _stagingarea.committed();
+        _indexDirty = true;
+        setBranch(_currBranch, head);
     }
 
     /** Creates a new branch with name BRANCHNAME. **/
     public void makeBranch(String branchname) {
-        if (_branches.containsKey(branchname)) {
+        if (getBranch(branchname) != null) {
             throw new GitletException("A branch with that name already exists");
         }
-        _branches.put(branchname, head);
+        setBranch(branchname, head);
     }
 
     /** Removes a branch of name BRANCHNAME. **/
     public void removeBranch(String branchname) {
-        if (!_branches.containsKey(branchname)) {
+        if (getBranch(branchname) == null) {
             throw new GitletException("A branch "
                     +  "with that name does not exist.");
         }
         if (_currBranch.equals(branchname)) {
             throw new GitletException("Cannot remove the current branch.");
         }
-        _branches.remove(branchname);
+        setBranch(branchname, null);
     }
 
     /** Reset the file back to the previous commit.
      * Takes in FILENAME and COMMIT hash. **/
     public void resetFile(String filename, String commit) {
-        String hash;
-        if (getCommitWithHash(commit).isTracked(filename)) {
-            hash = getCommitWithHash(commit).getTree().get(filename);
-        } else {
+        ObjectId hash = blobIn(getCommitWithHash(commit), filename);
+        if (hash == null) {
             throw new GitletException("File does not exist in that commit.");
         }
-        File fdir = Utils.join(folder, hash);
-        File fdir2 = Utils.join(currentDir, filename);
-        Utils.writeContents(fdir2, Utils.readContents(fdir));
+        writeWorkingFile(filename, hash);
     }
 
     /** Helper method to merge, takes in BRANCH.
@@ -140,86 +496,51 @@ public class Repository implements Serializable {
     public String mergeHelper1(String branch) {
         if (branch.equals(_currBranch)) {
             throw new GitletException("Cannot merge a branch with itself.");
-        } else if (!_branches.containsKey(branch)) {
+        } else if (getBranch(branch) == null) {
             throw new GitletException("A branch with"
                     + " that name does not exist.");
         }
-        boolean noRemoved = true;
-        boolean noStaged = true;
-        for (String s: headCommit.getTree().keySet()) {
-            if (!_stagingarea.isTracked(s)) {
-                noRemoved = false;
-            }
-        }
-        for (String s2: _stagingarea.getBranches().keySet()) {
-            if (!headCommit.isTracked(s2)) {
-                noStaged = false;
-            }
-        }
-        if (!noRemoved || !noStaged) {
+        if (!hashTree(new HashMap<>()).equals(treeOf(getHeadCommit()))) {
             throw new GitletException("You have uncommitted changes.");
         }
-        String splitPointHash = "";
-        ArrayList<String> touched = new ArrayList<>();
-        String startpoint = _branches.get(branch);
-        Commit startCommit = getCommitWithHash(startpoint);
-        while (startCommit != null) {
-            touched.add(startCommit.getHash());
-            startCommit = startCommit.getParent();
-        }
-        String startpoint2 = _branches.get(_currBranch);
-        Commit startCommit2 = getCommitWithHash(startpoint2);
-        while (startCommit2 != null) {
-            String commithash = startCommit2.getHash();
-            if (touched.contains(commithash)) {
-                splitPointHash = commithash;
-                break;
-            }
-            startCommit2 = startCommit2.getParent();
+        String other = getBranch(branch);
+        if (isAncestor(head, other)) {
+            return head;
+        } else if (isAncestor(other, head)) {
+            return other;
+        }
+        String splitPointHash = MergeBase.find(history(), head, other);
+        if (splitPointHash == null) {
+            return "";
         }
         return splitPointHash;
     }
 
     /** Another helpepr method to merge, takes in
-     * CHECKOUT, CONFLICTED, SPLITPOINT, CURRBRANCH,
-     * OTHERBRANCH.
+     * CHECKOUT, CONFLICTED and VERSIONS, which maps the files that
+     * differ between the split point and either branch to their
+     * blob hashes in the split point, the current branch and the
+     * other branch, null where they are missing.
      */
     private void mergeHelper2(ArrayList<String> checkout,
                               ArrayList<String> conflicted,
-                              Commit splitPoint, Commit currBranch,
-                              Commit otherBranch) {
-        for (String hash: otherBranch.getTree().keySet()) {
-            String otherHash;
-            String currentHash;
-            String splitHash;
-            if  (otherBranch.isTracked(hash)) {
-                otherHash = otherBranch.getTree().get(hash);
-            } else {
-                otherHash = "";
-            }
-            if (currBranch.isTracked(hash)) {
-                currentHash = currBranch.getTree().get(hash);
-            } else {
-                currentHash = "";
-            }
-            if (splitPoint.isTracked(hash)) {
-                splitHash = splitPoint.getTree().get(hash);
-            } else {
-                splitHash = "";
+                              TreeMap<String, ObjectId[]> versions) {
+        for (Map.Entry<String, ObjectId[]> e: versions.entrySet()) {
+            String hash = e.getKey();
+            ObjectId splitHash = e.getValue()[0];
+            ObjectId currentHash = e.getValue()[1];
+            ObjectId otherHash = e.getValue()[2];
+            if (otherHash == null) {
+                continue;
             }
             if (!otherHash.equals(currentHash)) {
-                if (!currentHash.equals(splitHash)
+                if (!Objects.equals(currentHash, splitHash)
                         && !otherHash.equals(splitHash)) {
                     conflicted.add(hash); continue;
                 }
-                if (currentHash.equals(splitHash)) {
-                    String filehash2 = "";
+                if (Objects.equals(currentHash, splitHash)) {
                     File f = Utils.join(currentDir, hash);
-                    if (f.exists()) {
-                        filehash2 = Utils.sha1
-                                (Utils.readContents(f));
-                    }
-                    if (!filehash2.equals("") && currentHash.equals("")) {
+                    if (f.exists() && currentHash == null) {
                         throw new GitletException("There "
                                 + "is an untracked file in the way;"
                                 + " delete it, or add and commit it first.");
@@ -231,34 +552,21 @@ public class Repository implements Serializable {
     }
 
     /** Helper method to merge which takes in
-     * DELETE, CONFLICTED, SPLITPOINT, CURRBRANCH,
-     * and OTHERBRANCH.
+     * DELETE, CONFLICTED and VERSIONS, as for mergeHelper2.
      */
     private void mergeHelper3(ArrayList<String> delete,
                               ArrayList<String> conflicted,
-                              Commit splitPoint, Commit currBranch,
-                              Commit otherBranch) {
-        for (String hash: currBranch.getTree().keySet()) {
-            String otherHash;
-            String currentHash;
-            String splitHash;
-            if  (otherBranch.isTracked(hash)) {
-                otherHash = otherBranch.getTree().get(hash);
-            } else {
-                otherHash = "";
-            }
-            if (currBranch.isTracked(hash)) {
-                currentHash = currBranch.getTree().get(hash);
-            } else {
-                currentHash = "";
+                              TreeMap<String, ObjectId[]> versions) {
+        for (Map.Entry<String, ObjectId[]> e: versions.entrySet()) {
+            String hash = e.getKey();
+            ObjectId splitHash = e.getValue()[0];
+            ObjectId currentHash = e.getValue()[1];
+            ObjectId otherHash = e.getValue()[2];
+            if (currentHash == null) {
+                continue;
             }
-            if (splitPoint.isTracked(hash)) {
-                splitHash = splitPoint.getTree().get(hash);
-            } else {
-                splitHash = "";
-            }
-            if (otherHash.equals("")) {
-                if (!splitHash.equals("") && !currentHash.equals(splitHash)) {
+            if (otherHash == null) {
+                if (splitHash != null && !currentHash.equals(splitHash)) {
                     conflicted.add(hash);
                     continue;
                 }
@@ -266,13 +574,7 @@ public class Repository implements Serializable {
                     if (_stagingarea.isTracked(hash)) {
                         delete.add(hash);
                     } else {
-                        String filehash = "";
                         if (Utils.join(currentDir, hash).exists()) {
-                            filehash = Utils.sha1
-                                    (Utils.readContents(Utils.
-                                            join(currentDir, hash)));
-                        }
-                        if (!filehash.equals("")) {
                             throw new GitletException("There is an "
                                     + "untracked file in the way;"
                                     + " delete it, or "
@@ -284,93 +586,116 @@ public class Repository implements Serializable {
         }
     }
 
+    /** Returns the files that differ between the commit SPLITPOINT
+     * and either of CURRBRANCH and OTHERBRANCH, mapped to their blob
+     * hashes in those three commits, null where they are missing. **/
+    private TreeMap<String, ObjectId[]> mergeVersions(Commit splitPoint,
+                                                      Commit currBranch,
+                                                      Commit otherBranch) {
+        TreeMap<String, ObjectId[]> ours = diff(splitPoint, currBranch);
+        TreeMap<String, ObjectId[]> theirs = diff(splitPoint, otherBranch);
+        TreeMap<String, ObjectId[]> versions = new TreeMap<>();
+        for (Map.Entry<String, ObjectId[]> e: ours.entrySet()) {
+            ObjectId[] other = theirs.get(e.getKey());
+            versions.put(e.getKey(), new ObjectId[] {e.getValue()[0],
+                e.getValue()[1], other == null ? e.getValue()[0] : other[1]});
+        }
+        for (Map.Entry<String, ObjectId[]> e: theirs.entrySet()) {
+            if (!ours.containsKey(e.getKey())) {
+                versions.put(e.getKey(), new ObjectId[] {e.getValue()[0],
+                    e.getValue()[0], e.getValue()[1]});
+            }
+        }
+        return versions;
+    }
+
     /** Method to merge current
-     * branch with BRANCH. **/
-    public void merge(String branch) {
+     * branch with BRANCH.
+     * @return true if some file conflicts **/
+    public boolean merge(String branch) {
         String splitPointHash = mergeHelper1(branch);
         Commit splitPoint = getCommitWithHash(splitPointHash);
-        Commit currBranch = getCommitWithHash(_branches.get(_currBranch));
-        Commit otherBranch = getCommitWithHash(_branches.get(branch));
+        Commit currBranch = getCommitWithHash(head);
+        Commit otherBranch = getCommitWithHash(getBranch(branch));
         if (splitPoint.equals(currBranch)) {
             throw new GitletException("Current branch fast-forwarded.");
         }
         if (splitPoint.equals(otherBranch)) {
-            head = _branches.get(branch);
-            _branches.put(_currBranch, head);
-            headCommit = getCommitWithHash(head);
             throw new GitletException("Given branch "
                     + "is an ancestor of the current branch.");
         }
+        TreeMap<String, ObjectId[]> versions =
+                mergeVersions(splitPoint, currBranch, otherBranch);
         ArrayList<String> delete = new ArrayList<>();
         ArrayList<String> checkout = new ArrayList<>();
         ArrayList<String> conflicted = new ArrayList<>();
-        mergeHelper2(checkout, conflicted, splitPoint, currBranch, otherBranch);
-        mergeHelper3(delete, conflicted, splitPoint, currBranch, otherBranch);
-        if (!conflicted.isEmpty()) {
-            System.out.println("Encountered a merge conflict.");
-        }
+        mergeHelper2(checkout, conflicted, versions);
+        mergeHelper3(delete, conflicted, versions);
         for (String del: delete) {
             removeFile(del);
         }
         for (String check: checkout) {
-            String hash1 = otherBranch.getHash();
-            if (!getCommitWithHash(hash1).isTracked(check)) {
-                throw new GitletException("File "
-                        + "does not exist in that commit.");
-            }
-            String bHash = getCommitWithHash(hash1).getTree().get(check);
-            File bDir = Utils.join(folder, bHash);
-            File wDir = Utils.join(currentDir, check);
-            Utils.writeContents(wDir, Utils.readContents(bDir));
+            writeWorkingFile(check, versions.get(check)[2]);
             addFile(check);
         }
+        boolean conflict = false;
         for (String file: conflicted) {
-            String f1;
-            if (currBranch.isTracked(file)) {
-                f1 = Utils.readContentsAsString(Utils.join(
-                        folder, currBranch.getTree().get(file)));
-            } else {
-                f1 = "";
-            }
-            String f2;
-            if (otherBranch.isTracked(file)) {
-                f2 = Utils.readContentsAsString(Utils.join(
-                        folder, otherBranch.getTree().get(file)));
-            } else {
-                f2 = "";
-            }
-            String message = "<<<<<<< HEAD\n" + f1
-                    + "=======\n" + f2 + ">>>>>>>\n";
-            Utils.writeContents(Utils.join(currentDir, file), message);
+            conflict |= mergeFile(file, versions.get(file));
             addFile(file);
         }
         merge2(branch, "Merged " + branch + " into " + _currBranch + ".");
+        return conflict;
+    }
+
+    /** Merges the lines of the versions of FILE changed on both
+     * branches into the working file. VERSIONS holds its blob hashes
+     * in the split point, the current branch and the other branch,
+     * null where it is missing.
+     * @return true if some lines conflict **/
+    private boolean mergeFile(String file, ObjectId[] versions) {
+        try (OutputStream out = new BufferedOutputStream(
+                Files.newOutputStream(workingFile(file).toPath()),
+                ObjectStore.BUFFER_SIZE)) {
+            return Merge3.merge(contents(versions[0]), contents(versions[1]),
+                    contents(versions[2]), out);
+        } catch (IOException excp) {
+            throw new IllegalArgumentException(excp.getMessage());
+        }
+    }
+
+    /** Returns the contents of the blob HASH, or none if HASH is
+     * null. **/
+    private byte[] contents(ObjectId hash) {
+        if (hash == null) {
+            return new byte[0];
+        }
+        return objects.read(hash.toString());
     }
 
     /** Another helper method for merge
      * takes in OTHERPARENT and MESSAGE. **/
     private void merge2(String otherparent, String message) {
-        if (headCommit.getTree().equals(_stagingarea.getBranches())) {
+        ObjectId tree = writeTree();
+        if (tree.equals(treeOf(headCommit))) {
             throw new GitletException("No changes added to the commit.");
         }
-        headCommit = new Commit(_stagingarea, headCommit.getHash(), message);
+        String merged = getBranch(otherparent);
+        headCommit = new Commit(tree.toString(), headCommit.getHash(), merged,
+                Math.max(generation(head), generation(merged)) + 1, message);
         head = headCommit.getHash();
-        commits.add(head);
-        hashToCommit.put(head, headCommit);
-        Utils.writeContents(Utils.join(folder, head),
-                Utils.serialize(headCommit));
-        _stagingarea = new StagingArea(headCommit);
-        _branches.put(_currBranch, head);
+        recordCommit(headCommit);
+        _stagingarea.committed();
+        _indexDirty = true;
+        setBranch(_currBranch, head);
     }
 
     /** Method to reset a file, taking in FILENAME. **/
     public void resetFile(String filename) {
-        if (!headCommit.isTracked(filename)) {
+        ObjectId hash = blobIn(getHeadCommit(), filename);
+        if (hash == null) {
             throw new GitletException("File does not exist in that commit.");
         }
-        File fdir = Utils.join(folder, headCommit.getTree().get(filename));
-        File fdir2 = Utils.join(currentDir, filename);
-        Utils.writeContents(fdir2, Utils.readContents(fdir));
+        writeWorkingFile(filename, hash);
     }
 
     /** Method to obtain the corresponding
@@ -380,14 +705,114 @@ public class Repository implements Serializable {
         if (hashToCommit.containsKey(hash)) {
             return hashToCommit.get(hash);
         }
+        Commit c = hash == null ? null : store.readCommit(hash);
+        if (c != null) {
+            hashToCommit.put(hash, c);
+            return c;
+        }
         throw new GitletException("No commit with that id exists.");
     }
 
-    /** Get the hash of a file given the FILE.
-     * @return hash **/
-    private String getFileHash(String file) {
-        File fdir =  Utils.join(currentDir, file);
-        return Utils.sha1(Utils.readContents(fdir));
+    /** Getter method for the commit with hash HASH, which is not kept
+     * in memory afterwards unless it already was, so that walking many
+     * commits takes bounded memory.
+     * @return Commit **/
+    public Commit readCommit(String hash) {
+        Commit c = hashToCommit.get(hash);
+        if (c == null && hash != null) {
+            c = store.readCommit(hash);
+        }
+        if (c == null) {
+            throw new GitletException("No commit with that id exists.");
+        }
+        return c;
+    }
+
+    /** Folds all objects into a single pack, storing each version of a
+     * file as a delta against the version before it where possible. **/
+    public void gc() {
+        HashMap<String, String> bases = new HashMap<>();
+        HashMap<String, ObjectId> lastVersion = new HashMap<>();
+        HashSet<ObjectId> seen = new HashSet<>();
+        ObjectId tree = null;
+        for (String id: getCommits()) {
+            ObjectId next = treeOf(getCommitWithHash(id));
+            for (Map.Entry<String, ObjectId[]> entry
+                    : diff(tree, next).entrySet()) {
+                ObjectId blob = entry.getValue()[1];
+                if (blob == null) {
+                    continue;
+                }
+                ObjectId previous = lastVersion.put(entry.getKey(), blob);
+                if (seen.add(blob) && previous != null) {
+                    bases.put(blob.toString(), previous.toString());
+                }
+            }
+            tree = next;
+        }
+        objects.repack(bases);
+        writeGraph();
+    }
+
+    /** Returns the hash of the working file NAME, or null if there is
+     * none. The file is only read if its stat differs from the one
+     * recorded in the staging area; if it turns out to match the
+     * staged version anyway, its new stat is recorded. **/
+    public ObjectId getWorkingHash(String name) {
+        File f = Utils.join(currentDir, name);
+        FileStat stat = FileStat.of(f);
+        if (stat == null) {
+            return null;
+        }
+        StagingArea sa = getStagingArea();
+        ObjectId staged = sa.getBranches().get(name);
+        if (staged != null && sa.isClean(name, stat)) {
+            return staged;
+        }
+        ObjectId hash = ObjectId.of(Utils.sha1(f));
+        if (hash.equals(staged)) {
+            sa.setStat(name, stat);
+            _indexDirty = true;
+        }
+        return hash;
+    }
+
+    /** Records the stats of the working files NAMES, which have just
+     * been written from the staged versions. **/
+    private void recordStats(Set<String> names) {
+        for (String name: names) {
+            _stagingarea.setStat(name,
+                    FileStat.of(Utils.join(currentDir, name)));
+        }
+    }
+
+    /** Overwrites the working file FILENAME with the blob HASH. **/
+    private void writeWorkingFile(String filename, ObjectId hash) {
+        objects.copyTo(hash.toString(), workingFile(filename));
+    }
+
+    /** Getter method for the working file NAME, creating the
+     * directories that hold it.
+     * @return file **/
+    private File workingFile(String name) {
+        File f = Utils.join(currentDir, name);
+        f.getParentFile().mkdirs();
+        return f;
+    }
+
+    /** Deletes the working file NAME, along with the directories
+     * it leaves empty. **/
+    private void deleteWorkingFile(String name) {
+        File f = Utils.join(currentDir, name);
+        if (f.isDirectory() || !f.delete()) {
+            return;
+        }
+        for (int i = name.lastIndexOf('/'); i > 0;
+             i = name.lastIndexOf('/', i - 1)) {
+            if (!Utils.join(currentDir, name.substring(0, i)).delete()) {
+                return;
+            }
+        }
     }
 
     /** Getter method for hash of head.
@@ -396,27 +821,82 @@ public class Repository implements Serializable {
         return head;
     }
 
-    /** Convert UID into ID.
+    /** Convert UID, which may be any prefix of a commit id, into ID.
+     * The commit graph is searched by binary search, and only the
+     * commits it does not cover yet are scanned.
      * @return ID **/
     public String uidToID(String uid) {
-        for (int i = 0; i < commits.size(); i++) {
-            if (commits.get(i).startsWith(uid)) {
-                return commits.get(i);
+        String prefix = uid.toLowerCase();
+        List<String> matches = new ArrayList<>();
+        if (prefix.matches("[0-9a-f]{1,40}")) {
+            int covered = 0;
+            if (getGraph() != null) {
+                matches.addAll(_graph.withPrefix(prefix, 2));
+                covered = _graph.size();
+            }
+            for (String id: store.commitIds(covered)) {
+                if (id.startsWith(prefix)) {
+                    matches.add(id);
+                }
             }
         }
-        throw new GitletException("No commit with that id exists.");
+        if (matches.isEmpty()) {
+            throw new GitletException("No commit with that id exists.");
+        } else if (matches.size() > 1) {
+            throw new GitletException("More than one commit has an id"
+                    + " starting with " + uid + ".");
+        }
+        return matches.get(0);
+    }
+
+    /** Getter method for the commits whose message is MESSAGE.
+     * @return ids in creation order **/
+    public List<String> findByMessage(String message) {
+        return store.messageIndex().withMessage(message);
+    }
+
+    /** Getter method for the commits whose messages contain every one
+     * of WORDS, ignoring case.
+     * @return ids in creation order **/
+    public List<String> findByWords(List<String> words) {
+        return store.messageIndex().withWords(words);
+    }
+
+    /** Getter method for the ids of at most COUNT commits in creation
+     * order, starting with the one numbered FROM.
+     * @return ids **/
+    public List<String> getCommits(int from, int count) {
+        if (commits != null) {
+            return commits.subList(Math.min(from, commits.size()),
+                    (int) Math.min(commits.size(), (long) from + count));
+        }
+        return store.commitIds(from, count);
     }
 
     /** Getter method for commits.
      * @return List **/
     public List<String> getCommits() {
+        if (commits == null) {
+            commits = store.commitIds();
+        }
         return commits;
     }
 
     /** Getter method for branches.
      * @return treemap **/
     public TreeMap<String, String> getBranches() {
-        return _branches;
+        TreeMap<String, String> branches = new TreeMap<>();
+        for (String name: store.refNames()) {
+            branches.put(name, store.readRef(name));
+        }
+        for (Map.Entry<String, String> ref: _refUpdates.entrySet()) {
+            if (ref.getValue() == null) {
+                branches.remove(ref.getKey());
+            } else {
+                branches.put(ref.getKey(), ref.getValue());
+            }
+        }
+        return branches;
     }
 
     /** Getter method for the current branch.
@@ -428,12 +908,18 @@ public class Repository implements Serializable {
     /** Getter method for the staging area. \
      * @return staging area **/
     public StagingArea getStagingArea() {
+        if (_stagingarea == null) {
+            _stagingarea = store.readIndex();
+        }
         return _stagingarea;
     }
 
     /** Getter method for the head commit.
      * @return Commit **/
     public Commit getHeadCommit() {
+        if (headCommit == null) {
+            headCommit = getCommitWithHash(head);
+        }
         return headCommit;
     }
 
@@ -445,34 +931,11 @@ public class Repository implements Serializable {
 
     /** Main helper method to reset, taking in COMMIT. **/
     public void reset(String commit) {
-        if (!commits.contains(commit)) {
-            throw new GitletException("No commit with that id exists.");
-        }
-        Set<String> prevKeys = getCommitWithHash(commit).getTree().keySet();
-        Set<String> currKeys = _stagingarea.getBranches().keySet();
-        for (String f: prevKeys) {
-            if (!_stagingarea.isTracked(f)) {
-                File fdir = Utils.join(currentDir, f);
-                if (fdir.exists()) {
-                    throw new GitletException("There is an untracked"
-                            + " file in the way; delete it, "
-                            + "or add and commit it first.");
-                }
-            }
-        }
-        for (String g: currKeys) {
-            Utils.restrictedDelete(Utils.join(currentDir, g));
-        }
-        for (String h: prevKeys) {
-            File f = Utils.join(folder,
-                    getCommitWithHash(commit).getTree().get(h));
-            File g = Utils.join(currentDir, h);
-            Utils.writeContents(g, Utils.readContents(f));
-        }
-        headCommit = getCommitWithHash(commit);
+        Commit target = getCommitWithHash(commit);
+        switchTo(target);
+        headCommit = target;
         head = headCommit.getHash();
-        _branches.put(_currBranch, head);
-        _stagingarea = new StagingArea(headCommit);
+        setBranch(_currBranch, head);
     }
 
     /** Main helper method for checkout, taking in BRANCHNAME. **/
@@ -481,42 +944,48 @@ public class Repository implements Serializable {
             throw new GitletException("No need "
                     + "to checkout the current branch.");
         }
-        if (!_branches.keySet().contains(branchname)) {
+        String branchHead = getBranch(branchname);
+        if (branchHead == null) {
             throw new GitletException("No such branch exists");
         }
+        Commit target = getCommitWithHash(branchHead);
+        switchTo(target);
         _currBranch = branchname;
-        if (!commits.contains(_branches.get(branchname))) {
-            throw new GitletException("No "
-                    + "commit with that id exists.");
-        }
-        Set<String> prevKeys = getCommitWithHash
-                (_branches.get(branchname)).getTree().keySet();
-        Set<String> currKeys = _stagingarea.
-                getBranches().keySet();
-        for (String f: prevKeys) {
-            if (!_stagingarea.isTracked(f)) {
-                File fdir = Utils.join(currentDir, f);
-                if (fdir.exists()) {
-                    throw new GitletException("There is an untracked"
-                            + " file in the way; "
-                            + "delete it, or add and commit it first.");
-                }
+        _headDirty = true;
+        headCommit = target;
+        head = headCommit.getHash();
+    }
 
+    /** Makes the working files and the staging area match commit
+     * TARGET. Only the files whose staged versions differ from those
+     * of TARGET are written or deleted. **/
+    private void switchTo(Commit target) {
+        HashMap<ObjectId, Tree> built = new HashMap<>();
+        ObjectId staged = hashTree(built);
+        TreeMap<String, ObjectId[]> changes = new TreeMap<>();
+        Tree.diff(objects, built, staged, treeOf(target), "", changes);
+        for (Map.Entry<String, ObjectId[]> e: changes.entrySet()) {
+            if (e.getValue()[0] == null
+                    && Utils.join(currentDir, e.getKey()).exists()) {
+                throw new GitletException("There is an untracked"
+                        + " file in the way; delete it, "
+                        + "or add and commit it first.");
             }
         }
-        for (String g: currKeys) {
-            Utils.restrictedDelete(Utils.join(currentDir, g));
+        for (Map.Entry<String, ObjectId[]> e: changes.entrySet()) {
+            if (e.getValue()[1] == null) {
+                deleteWorkingFile(e.getKey());
+            }
         }
-        for (String h: prevKeys) {
-            File f = Utils.join(folder, getCommitWithHash
-                    (_branches.get(branchname)).getTree().get(h));
-            File g = Utils.join(currentDir, h);
-            Utils.writeContents(g, Utils.readContents(f));
+        for (Map.Entry<String, ObjectId[]> e: changes.entrySet()) {
+            if (e.getValue()[1] != null) {
+                writeWorkingFile(e.getKey(), e.getValue()[1]);
+            }
         }
-        headCommit = getCommitWithHash(_branches.get(branchname));
-        head = headCommit.getHash();
-        _branches.put(_currBranch, head);
-        _stagingarea = new StagingArea(headCommit);
+        StagingArea old = _stagingarea;
+        resetStagingArea(target);
+        _stagingarea.keepStats(old);
+        recordStats(changes.keySet());
     }
 
 }
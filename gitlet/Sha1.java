@@ -0,0 +1,156 @@
+package gitlet;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+
+/** SHA-1 hashing without the cost of looking up the algorithm on every
+ *  hash or of formatting its result. Each thread reuses one digest,
+ *  cloned from a prototype, and hashes are turned into hex through a
+ *  lookup table.
+ *
+ * @author tomzheng
+ */
+final class Sha1 {
+
+    /** Length of a hash in bytes. **/
+    static final int BYTES = 20;
+
+    /** Lower-case hex digits, by value. **/
+    private static final char[] DIGITS = "0123456789abcdef".toCharArray();
+
+    /** Values of hex digits, by character, or -1. **/
+    private static final byte[] VALUES = new byte[128];
+
+    static {
+        Arrays.fill(VALUES, (byte) -1);
+        for (int i = 0; i < DIGITS.length; i++) {
+            VALUES[DIGITS[i]] = (byte) i;
+            VALUES[Character.toUpperCase(DIGITS[i])] = (byte) i;
+        }
+    }
+
+    /** The digest every other one is cloned from. **/
+    private static final MessageDigest PROTOTYPE;
+
+    static {
+        try {
+            PROTOTYPE = MessageDigest.getInstance("SHA-1");
+        } catch (NoSuchAlgorithmException excp) {
+            throw new IllegalArgumentException(
+                    "System does not support SHA-1");
+        }
+    }
+
+    /** The digest of each thread. **/
+    private static final ThreadLocal<MessageDigest> DIGEST =
+        ThreadLocal.withInitial(Sha1::newDigest);
+
+    /** Not instantiable. **/
+    private Sha1() {
+    }
+
+    /** Returns a new SHA-1 digest, for a hash computed a piece at a
+     *  time by the caller. **/
+    static MessageDigest newDigest() {
+        try {
+            return (MessageDigest) PROTOTYPE.clone();
+        } catch (CloneNotSupportedException excp) {
+            try {
+                return MessageDigest.getInstance("SHA-1");
+            } catch (NoSuchAlgorithmException e) {
+                throw new IllegalArgumentException(
+                        "System does not support SHA-1");
+            }
+        }
+    }
+
+    /** Returns the digest of this thread, reset. It must not be held
+     *  past the hash it is used for. **/
+    static MessageDigest digest() {
+        MessageDigest md = DIGEST.get();
+        md.reset();
+        return md;
+    }
+
+    /** Returns the hash of DATA, in hex. **/
+    static String of(byte[] data) {
+        long start = Trace.start();
+        String hash = hex(digest().digest(data));
+        Trace.end(Trace.Phase.HASH, start, data.length);
+        return hash;
+    }
+
+    /** Returns the hash of the remaining bytes of DATA, in hex, which
+     *  are consumed. **/
+    static String of(ByteBuffer data) {
+        long start = Trace.start();
+        int bytes = data.remaining();
+        MessageDigest md = digest();
+        md.update(data);
+        String hash = hex(md.digest());
+        Trace.end(Trace.Phase.HASH, start, bytes);
+        return hash;
+    }
+
+    /** Returns the hash of everything read from IN, in hex, read
+     *  through BUFFER. **/
+    static String of(ReadableByteChannel in, ByteBuffer buffer)
+        throws IOException {
+        long start = Trace.start();
+        long bytes = 0;
+        MessageDigest md = digest();
+        buffer.clear();
+        while (in.read(buffer) >= 0) {
+            buffer.flip();
+            bytes += buffer.remaining();
+            md.update(buffer);
+            buffer.clear();
+        }
+        String hash = hex(md.digest());
+        Trace.end(Trace.Phase.HASH, start, bytes);
+        return hash;
+    }
+
+    /** Returns the hex form of BYTES, in lower case. **/
+    static String hex(byte[] bytes) {
+        char[] result = new char[2 * bytes.length];
+        for (int i = 0; i < bytes.length; i++) {
+            result[2 * i] = DIGITS[(bytes[i] >> 4) & 0xf];
+            result[2 * i + 1] = DIGITS[bytes[i] & 0xf];
+        }
+        return new String(result);
+    }
+
+    /** Returns the bytes whose hex form is HEX, which has an even
+     *  number of digits of either case. **/
+    static byte[] fromHex(String hex) {
+        if (hex.length() % 2 != 0) {
+            throw new IllegalArgumentException("odd-length hex: " + hex);
+        }
+        return fromHex(hex, 0, hex.length());
+    }
+
+    /** Returns the bytes whose hex form is the LENGTH digits of TEXT
+     *  starting at START, LENGTH being even. **/
+    static byte[] fromHex(CharSequence text, int start, int length) {
+        byte[] result = new byte[length / 2];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = (byte) (value(text.charAt(start + 2 * i)) << 4
+                                | value(text.charAt(start + 2 * i + 1)));
+        }
+        return result;
+    }
+
+    /** Returns the value of the hex digit C. **/
+    private static int value(char c) {
+        int v = c < VALUES.length ? VALUES[c] : -1;
+        if (v < 0) {
+            throw new IllegalArgumentException("not a hex digit: " + c);
+        }
+        return v;
+    }
+}
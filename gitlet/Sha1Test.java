@@ -0,0 +1,62 @@
+package gitlet;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayInputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+
+/** Tests of SHA-1 hashing and hex encoding.
+ *  @author tomzheng
+ */
+public class Sha1Test {
+
+    /** The hash of "abc", from FIPS 180. */
+    private static final String ABC =
+        "a9993e364706816aba3e25717850c26c9cd0d89d";
+
+    @Test
+    public void hashesKnownValues() throws Exception {
+        byte[] abc = "abc".getBytes(StandardCharsets.UTF_8);
+        assertEquals(ABC, Sha1.of(abc));
+        assertEquals(ABC, Utils.sha1("a", "bc".getBytes(
+                StandardCharsets.UTF_8)));
+        assertEquals(ABC, Sha1.of(ByteBuffer.wrap(abc)));
+        assertEquals(ABC, Sha1.of(Channels.newChannel(
+                new ByteArrayInputStream(abc)), ByteBuffer.allocate(2)));
+        assertEquals("da39a3ee5e6b4b0d3255bfef95601890afd80709",
+                Sha1.of(new byte[0]));
+    }
+
+    @Test
+    public void digestsAreReset() {
+        Sha1.digest().update((byte) 1);
+        assertEquals(ABC, Utils.sha1("abc"));
+        assertEquals(ABC, Utils.sha1("abc"));
+    }
+
+    @Test
+    public void hexRoundTrips() {
+        Random random = new Random(17);
+        for (int i = 0; i < 100; i++) {
+            byte[] bytes = new byte[Sha1.BYTES];
+            random.nextBytes(bytes);
+            String hex = Sha1.hex(bytes);
+            StringBuilder expected = new StringBuilder();
+            for (byte b : bytes) {
+                expected.append(String.format("%02x", b));
+            }
+            assertEquals(expected.toString(), hex);
+            assertArrayEquals(bytes, Sha1.fromHex(hex));
+            assertArrayEquals(bytes, Sha1.fromHex(hex.toUpperCase()));
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsBadHex() {
+        Sha1.fromHex("0g");
+    }
+}
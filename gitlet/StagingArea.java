@@ -1,28 +1,140 @@
 package gitlet;
 import java.io.Serializable;
 import java.util.HashMap;
+import java.util.Map;
 
-/** Staging area class.
+/** Staging area class. Besides the hash of each staged file, it
+ * remembers the stat of the working file when it was last hashed.
+ * A file whose stat still matches need not be re-hashed, unless it
+ * was modified no earlier than the index was written, in which case
+ * it may have changed again within the same clock tick. Such a file
+ * has its recorded size zeroed as the index is written, so it is
+ * still hashed once a later index is newer than it; an empty file is
+ * therefore always hashed.
  * @author tomzheng
  */
 public class StagingArea implements Serializable {
 
+    /** Pinned, so indexes written by earlier builds still load. **/
+    private static final long serialVersionUID = 4844647126630052870L;
+
     /** Branches in staging area. **/
-    private HashMap<String, String> branches;
+    private HashMap<String, ObjectId> branches;
     /** Previous branches. **/
-    private HashMap<String, String> previous;
+    private HashMap<String, ObjectId> previous;
+    /** Stats of the working files when last hashed. **/
+    private HashMap<String, FileStat> stats;
+    /** Hashes of the trees of the directories whose files have not
+     * changed since the last commit, by path, the root being "". **/
+    private HashMap<String, ObjectId> trees;
+    /** Modification time of the index when it was read, in
+     * nanoseconds. **/
+    private transient long indexTime;
 
-    /**Constructor for staging area
-     * takes in C. **/
-    public StagingArea(Commit c) {
-        branches = new HashMap<>(c.getBranches());
-        previous = new HashMap<>(c.getBranches());
+    /**Constructor for staging area matching a commit with
+     * FILES, whose directories have the tree hashes TREES. **/
+    public StagingArea(Map<String, ObjectId> files,
+                       Map<String, ObjectId> trees) {
+        branches = new HashMap<>(files);
+        previous = new HashMap<>(files);
+        stats = new HashMap<>();
+        this.trees = new HashMap<>(trees);
     }
 
     /** Adds a file named NAME with HASH to
      * the staging area. **/
-    public void add(String name, String hash) {
-        branches.put(name, hash);
+    public void add(String name, ObjectId hash) {
+        add(name, hash, null);
+    }
+
+    /** Adds a file named NAME with HASH to the staging area,
+     * whose working file had STAT when hashed. **/
+    public void add(String name, ObjectId hash, FileStat stat) {
+        if (!hash.equals(branches.put(name, hash))) {
+            changed(name);
+        }
+        setStat(name, stat);
+    }
+
+    /** Forgets the tree hashes of the directories holding NAME. **/
+    private void changed(String name) {
+        for (int i = name.lastIndexOf('/'); i > 0;
+             i = name.lastIndexOf('/', i - 1)) {
+            getTrees().remove(name.substring(0, i));
+        }
+        getTrees().remove("");
+    }
+
+    /** Getter method for the known tree hashes.
+     * @return hashmap from directory path to tree hash **/
+    HashMap<String, ObjectId> getTrees() {
+        return trees;
+    }
+
+    /** Records that the staged files have been committed. **/
+    void committed() {
+        previous = new HashMap<>(branches);
+    }
+
+    /** Records that the working file NAME has STAT and still matches
+     * its staged hash. **/
+    public void setStat(String name, FileStat stat) {
+        if (stat == null) {
+            getStats().remove(name);
+        } else {
+            getStats().put(name, stat);
+        }
+    }
+
+    /** Checks whether the working file NAME, which has STAT, surely
+     * still matches its staged hash.
+     * @return boolean **/
+    public boolean isClean(String name, FileStat stat) {
+        return stat != null && stat.size() != 0
+                && stat.equals(getStats().get(name))
+                && stat.mtime() < indexTime;
+    }
+
+    /** Zeroes the recorded sizes of the files modified no earlier than
+     * TIME nanoseconds, the time the index is written.
+     * @return whether any was zeroed **/
+    boolean smudge(long time) {
+        boolean smudged = false;
+        for (Map.Entry<String, FileStat> e: getStats().entrySet()) {
+            if (e.getValue().size() != 0 && e.getValue().mtime() >= time) {
+                e.setValue(e.getValue().smudged());
+                smudged = true;
+            }
+        }
+        return smudged;
+    }
+
+    /** Takes over the stats OTHER recorded for the files staged
+     * with the same hashes here. **/
+    void keepStats(StagingArea other) {
+        for (Map.Entry<String, FileStat> e: other.getStats().entrySet()) {
+            ObjectId hash = branches.get(e.getKey());
+            if (hash != null && hash.equals(other.branches.get(e.getKey()))) {
+                getStats().put(e.getKey(), e.getValue());
+            }
+        }
+    }
+
+    /** Getter method for the modification time of the index.
+     * @return nanoseconds **/
+    long getIndexTime() {
+        return indexTime;
+    }
+
+    /** Sets the modification time of the index to TIME nanoseconds. **/
+    void setIndexTime(long time) {
+        indexTime = time;
+    }
+
+    /** Getter method for the stats.
+     * @return hashmap **/
+    private HashMap<String, FileStat> getStats() {
+        return stats;
     }
 
     /** Checks if FILENAME is being tracked
@@ -37,7 +149,7 @@ public class StagingArea implements Serializable {
 
     /** Getter method for branches.
      * @return hashmap **/
-    public HashMap<String, String> getBranches() {
+    public HashMap<String, ObjectId> getBranches() {
         return branches;
     }
 
@@ -45,6 +157,10 @@ public class StagingArea implements Serializable {
      * removed from the staging area.
      * @return boolean **/
     public boolean remove(String name) {
+        getStats().remove(name);
+        if (branches.containsKey(name)) {
+            changed(name);
+        }
         if (!previous.containsKey(name)) {
             branches.remove(name); return false;
         } else {
@@ -0,0 +1,133 @@
+package gitlet;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/** The branches of a repository and the differences between the head
+ *  commit, the staging area and the working directory. The directory
+ *  is listed once, and the sorted names of all three are walked
+ *  together in a single merge, so a status costs one pass over the
+ *  files plus the sorts.
+ *
+ * @author tomzheng
+ */
+public class Status {
+
+    /** Names of the branches. **/
+    private final List<String> _branches;
+
+    /** Name of the current branch. **/
+    private final String _currentBranch;
+
+    /** Files staged that the head commit does not track. **/
+    private final List<String> _staged = new ArrayList<>();
+
+    /** Files the head commit tracks that are no longer staged. **/
+    private final List<String> _removed = new ArrayList<>();
+
+    /** Staged files whose working copy differs, mapped to "modified",
+     *  or is missing, mapped to "deleted". **/
+    private final TreeMap<String, String> _unstaged = new TreeMap<>();
+
+    /** Working files that are not staged. **/
+    private final List<String> _untracked = new ArrayList<>();
+
+    /** Computes the status of repository R. **/
+    Status(Repository r) {
+        _branches = new ArrayList<>(r.getBranches().keySet());
+        _currentBranch = r.getCurrentBranch();
+        Map<String, ObjectId> index = r.getStagingArea().getBranches();
+        String[] head = sorted(r.getFiles(r.getHeadCommit()).keySet()
+                .toArray(new String[0]));
+        String[] staged = sorted(index.keySet().toArray(new String[0]));
+        List<String> work = Utils.plainFilenamesUnder(r.getCurrentDir());
+        String[] working = work == null ? new String[0]
+                : work.toArray(new String[0]);
+        int h = 0, s = 0, w = 0;
+        while (h < head.length || s < staged.length || w < working.length) {
+            String name = least(least(at(head, h), at(staged, s)),
+                    at(working, w));
+            boolean inHead = name.equals(at(head, h));
+            boolean inIndex = name.equals(at(staged, s));
+            boolean inWork = name.equals(at(working, w));
+            if (inIndex && !inHead) {
+                _staged.add(name);
+            } else if (inHead && !inIndex) {
+                _removed.add(name);
+            }
+            if (inIndex && !inWork) {
+                _unstaged.put(name, "deleted");
+            } else if (inIndex
+                    && !index.get(name).equals(r.getWorkingHash(name))) {
+                _unstaged.put(name, "modified");
+            } else if (inWork && !inIndex) {
+                _untracked.add(name);
+            }
+            h += inHead ? 1 : 0;
+            s += inIndex ? 1 : 0;
+            w += inWork ? 1 : 0;
+        }
+    }
+
+    /** Sorts NAMES in place.
+     * @return NAMES **/
+    private static String[] sorted(String[] names) {
+        Arrays.sort(names);
+        return names;
+    }
+
+    /** Getter method for the Ith of NAMES.
+     * @return name, or null past the end **/
+    private static String at(String[] names, int i) {
+        return i < names.length ? names[i] : null;
+    }
+
+    /** Returns the lesser of A and B, either of which may be null. **/
+    private static String least(String a, String b) {
+        if (a == null) {
+            return b;
+        } else if (b == null) {
+            return a;
+        }
+        return a.compareTo(b) <= 0 ? a : b;
+    }
+
+    /** Getter method for the branches.
+     * @return names in lexicographic order **/
+    public List<String> getBranches() {
+        return _branches;
+    }
+
+    /** Getter method for the current branch.
+     * @return name **/
+    public String getCurrentBranch() {
+        return _currentBranch;
+    }
+
+    /** Getter method for the files staged for addition.
+     * @return names in lexicographic order **/
+    public List<String> getStaged() {
+        return _staged;
+    }
+
+    /** Getter method for the files staged for removal.
+     * @return names in lexicographic order **/
+    public List<String> getRemoved() {
+        return _removed;
+    }
+
+    /** Getter method for the changes not staged for commit.
+     * @return treemap from name to "modified" or "deleted" **/
+    public TreeMap<String, String> getUnstaged() {
+        return _unstaged;
+    }
+
+    /** Getter method for the untracked files.
+     * @return names in lexicographic order **/
+    public List<String> getUntracked() {
+        return _untracked;
+    }
+}
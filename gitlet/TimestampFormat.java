@@ -0,0 +1,70 @@
+package gitlet;
+
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+
+/** Formats times to the second with a DateTimeFormatter, remembering
+ *  the text for recently formatted seconds. Commits made close together
+ *  share seconds, so most entries of a log are found in the cache.
+ *
+ *  Instances are safe to share between threads: the formatter is
+ *  immutable, and the cache only ever holds immutable entries, so a
+ *  thread sees either a whole entry or none, and at worst formats a
+ *  second again.
+ *
+ * @author tomzheng
+ */
+class TimestampFormat {
+
+    /** The format of the dates of log entries. **/
+    static final TimestampFormat LOG =
+        new TimestampFormat("EEE MMM d HH:mm:ss yyyy Z");
+
+    /** Number of seconds remembered; a power of two. **/
+    private static final int SLOTS = 1024;
+
+    /** A second and its text. **/
+    private static final class Entry {
+
+        /** Seconds since the epoch. **/
+        private final long _second;
+
+        /** The formatted second. **/
+        private final String _text;
+
+        /** Constructor for the text TEXT of SECOND. **/
+        Entry(long second, String text) {
+            _second = second;
+            _text = text;
+        }
+    }
+
+    /** The formatter, in the default time zone. **/
+    private final DateTimeFormatter _formatter;
+
+    /** Recently formatted seconds, each in the slot given by its low
+     *  bits. **/
+    private final Entry[] _cache = new Entry[SLOTS];
+
+    /** Constructor for times formatted with PATTERN, as for
+     *  DateTimeFormatter, in the default time zone. **/
+    TimestampFormat(String pattern) {
+        _formatter = DateTimeFormatter.ofPattern(pattern)
+            .withZone(ZoneId.systemDefault());
+    }
+
+    /** Returns the text of the time MILLIS, in milliseconds since the
+     *  epoch, to the second. **/
+    String format(long millis) {
+        long second = Math.floorDiv(millis, 1000L);
+        int slot = (int) (second & (SLOTS - 1));
+        Entry entry = _cache[slot];
+        if (entry == null || entry._second != second) {
+            entry = new Entry(second,
+                    _formatter.format(Instant.ofEpochSecond(second)));
+            _cache[slot] = entry;
+        }
+        return entry._text;
+    }
+}
@@ -0,0 +1,66 @@
+package gitlet;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Random;
+
+/** Tests of the cached formatting of times.
+ *  @author tomzheng
+ */
+public class TimestampFormatTest {
+
+    /** The pattern of log dates. */
+    private static final String PATTERN = "EEE MMM d HH:mm:ss yyyy Z";
+
+    @Test
+    public void matchesSimpleDateFormat() {
+        SimpleDateFormat expected = new SimpleDateFormat(PATTERN);
+        TimestampFormat format = new TimestampFormat(PATTERN);
+        Random random = new Random(16);
+        for (int i = 0; i < 10000; i++) {
+            long millis = random.nextLong() % 4000000000000L;
+            assertEquals(expected.format(new Date(millis)),
+                    format.format(millis));
+            assertEquals(expected.format(new Date(millis + 1)),
+                    format.format(millis + 1));
+        }
+        assertEquals(expected.format(new Date(0)), format.format(0));
+        assertEquals(expected.format(new Date(-1)), format.format(-1));
+    }
+
+    @Test
+    public void isSafeToShare() throws InterruptedException {
+        TimestampFormat format = new TimestampFormat(PATTERN);
+        List<Thread> threads = new ArrayList<>();
+        List<Throwable> failures = new ArrayList<>();
+        for (int t = 0; t < 4; t++) {
+            int seed = t;
+            threads.add(new Thread(() -> {
+                SimpleDateFormat expected = new SimpleDateFormat(PATTERN);
+                Random random = new Random(seed);
+                for (int i = 0; i < 20000; i++) {
+                    long millis = 1000L * random.nextInt(5000);
+                    if (!expected.format(new Date(millis))
+                            .equals(format.format(millis))) {
+                        synchronized (failures) {
+                            failures.add(new AssertionError(millis));
+                        }
+                        return;
+                    }
+                }
+            }));
+        }
+        for (Thread thread: threads) {
+            thread.start();
+        }
+        for (Thread thread: threads) {
+            thread.join();
+        }
+        assertTrue(failures.isEmpty());
+    }
+}
@@ -0,0 +1,246 @@
+package gitlet;
+
+import java.io.PrintStream;
+import java.util.Locale;
+import java.util.concurrent.atomic.LongAdder;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.FlightRecorder;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Timespan;
+
+/** Counts and times the phases of a command that cost the most: loading
+ *  the repository, reading and writing the staging area, commits and
+ *  objects, reading and writing working files, hashing and listing
+ *  directories. Tracing is off unless turned on with configure, which
+ *  gitlet does for `gitlet --trace[=json] COMMAND` or when the variable
+ *  GITLET_TRACE is set. At the end, report prints the calls, time and
+ *  bytes or files of each phase. Phases may nest, as when storing a blob
+ *  hashes it, so their times need not add up to the total.
+ *
+ *  A phase is timed by
+ *      long start = Trace.start();
+ *      ...
+ *      Trace.end(Trace.Phase.HASH, start, bytes);
+ *  which, while tracing is off, costs the test of one flag. While it is
+ *  on, each phase is also committed as a JFR event, gitlet.Phase, to any
+ *  flight recording that enables it, such as one started by
+ *  -XX:StartFlightRecording; without a recording, JFR is not loaded.
+ *
+ * @author tomzheng
+ */
+final class Trace {
+
+    /** The phases traced. **/
+    enum Phase {
+        /** Opening the repository. **/
+        LOAD("load", null),
+        /** Reading the staging area. **/
+        INDEX_READ("index.read", "bytes"),
+        /** Writing the staging area. **/
+        INDEX_WRITE("index.write", "bytes"),
+        /** Reading a commit. **/
+        COMMIT_READ("commit.read", "bytes"),
+        /** Reading an object, or copying it to a working file. **/
+        OBJECT_READ("object.read", "bytes"),
+        /** Storing an object. **/
+        OBJECT_WRITE("object.write", "bytes"),
+        /** Reading a whole file. **/
+        FILE_READ("file.read", "bytes"),
+        /** Writing a whole file. **/
+        FILE_WRITE("file.write", "bytes"),
+        /** Computing a SHA-1 hash. **/
+        HASH("hash", "bytes"),
+        /** Listing the plain files of a directory. **/
+        SCAN("scan", "files");
+
+        /** Name of the phase in a report. **/
+        private final String _name;
+
+        /** What the amount of the phase counts, or null if nothing. **/
+        private final String _unit;
+
+        /** Number of times the phase ran. **/
+        private final LongAdder _calls = new LongAdder();
+
+        /** Time spent in it, in nanoseconds. **/
+        private final LongAdder _nanos = new LongAdder();
+
+        /** Bytes or files it handled. **/
+        private final LongAdder _amount = new LongAdder();
+
+        /** Constructor for the phase NAME, whose amounts count UNIT. **/
+        Phase(String name, String unit) {
+            _name = name;
+            _unit = unit;
+        }
+
+        /** Getter method for the name.
+         * @return name **/
+        String getName() {
+            return _name;
+        }
+
+        /** Getter method for the number of times the phase ran.
+         * @return calls **/
+        long getCalls() {
+            return _calls.sum();
+        }
+
+        /** Getter method for the bytes or files the phase handled.
+         * @return amount **/
+        long getAmount() {
+            return _amount.sum();
+        }
+    }
+
+    /** A phase, as recorded by JFR. **/
+    @Name("gitlet.Phase")
+    @Label("Gitlet Phase")
+    @Category("Gitlet")
+    @Description("A traced phase of a gitlet command")
+    static final class PhaseEvent extends Event {
+        /** Name of the phase. **/
+        @Label("Phase")
+        String phase;
+
+        /** Time spent in it. **/
+        @Label("Elapsed")
+        @Timespan(Timespan.NANOSECONDS)
+        long elapsed;
+
+        /** Bytes or files it handled. **/
+        @Label("Amount")
+        long amount;
+    }
+
+    /** Whether tracing is on. **/
+    private static boolean _enabled;
+
+    /** Whether the report is in JSON. **/
+    private static boolean _json;
+
+    /** When tracing was turned on, in nanoseconds. **/
+    private static long _began;
+
+    /** Not instantiable. **/
+    private Trace() {
+    }
+
+    /** Turns tracing on or off as MODE says: off if it is null, empty
+     *  or "0", on with a report in JSON if it is "json", and on with a
+     *  report in text otherwise. Clears the counts. **/
+    static void configure(String mode) {
+        _enabled = mode != null && !mode.isEmpty() && !mode.equals("0");
+        _json = "json".equals(mode);
+        for (Phase p : Phase.values()) {
+            p._calls.reset();
+            p._nanos.reset();
+            p._amount.reset();
+        }
+        _began = System.nanoTime();
+    }
+
+    /** Checks whether tracing is on.
+     * @return boolean **/
+    static boolean enabled() {
+        return _enabled;
+    }
+
+    /** Returns the time at which a phase starts, or 0 if tracing is
+     *  off. **/
+    static long start() {
+        return _enabled ? System.nanoTime() : 0;
+    }
+
+    /** Records that PHASE, which began at START as given by start,
+     *  ended having handled AMOUNT bytes or files. Does nothing if START
+     *  is 0. **/
+    static void end(Phase phase, long start, long amount) {
+        if (start == 0) {
+            return;
+        }
+        long nanos = System.nanoTime() - start;
+        phase._calls.increment();
+        phase._nanos.add(nanos);
+        phase._amount.add(amount);
+        if (!FlightRecorder.isInitialized()) {
+            return;
+        }
+        PhaseEvent event = new PhaseEvent();
+        if (event.isEnabled()) {
+            event.phase = phase._name;
+            event.elapsed = nanos;
+            event.amount = amount;
+            event.commit();
+        }
+    }
+
+    /** Prints to OUT what was traced of COMMAND since tracing was turned
+     *  on, in text or in JSON as configured: for each phase that ran,
+     *  its calls, milliseconds and amount. **/
+    static void report(PrintStream out, String command) {
+        double total = (System.nanoTime() - _began) / 1e6;
+        StringBuilder r = new StringBuilder();
+        if (_json) {
+            r.append("{\"command\":").append(quote(command))
+                .append(String.format(Locale.ROOT, ",\"ms\":%.3f", total))
+                .append(",\"phases\":[");
+        } else {
+            r.append(String.format(Locale.ROOT,
+                    "gitlet trace: %s, %.3f ms%n%-14s %8s %10s %14s%n",
+                    command, total, "phase", "calls", "ms", "amount"));
+        }
+        boolean first = true;
+        for (Phase p : Phase.values()) {
+            long calls = p.getCalls();
+            if (calls == 0) {
+                continue;
+            }
+            double ms = p._nanos.sum() / 1e6;
+            if (_json) {
+                r.append(first ? "" : ",").append("{\"phase\":")
+                    .append(quote(p._name))
+                    .append(String.format(Locale.ROOT,
+                            ",\"calls\":%d,\"ms\":%.3f", calls, ms));
+                if (p._unit != null) {
+                    r.append(",\"").append(p._unit).append("\":")
+                        .append(p.getAmount());
+                }
+                r.append("}");
+            } else {
+                r.append(String.format(Locale.ROOT, "%-14s %8d %10.3f",
+                        p._name, calls, ms));
+                if (p._unit != null) {
+                    r.append(String.format(Locale.ROOT, " %14d %s",
+                            p.getAmount(), p._unit));
+                }
+                r.append(System.lineSeparator());
+            }
+            first = false;
+        }
+        if (_json) {
+            r.append("]}").append(System.lineSeparator());
+        }
+        out.print(r);
+        out.flush();
+    }
+
+    /** Returns S as a JSON string. **/
+    private static String quote(String s) {
+        StringBuilder q = new StringBuilder("\"");
+        for (char c : s.toCharArray()) {
+            if (c == '"' || c == '\\') {
+                q.append('\\').append(c);
+            } else if (c < ' ') {
+                q.append(String.format("\\u%04x", (int) c));
+            } else {
+                q.append(c);
+            }
+        }
+        return q.append('"').toString();
+    }
+}
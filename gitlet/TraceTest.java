@@ -0,0 +1,101 @@
+package gitlet;
+
+import org.junit.After;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Path;
+import java.util.List;
+
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+
+/** Tests of tracing.
+ *  @author tomzheng
+ */
+public class TraceTest {
+
+    @After
+    public void turnOff() {
+        Trace.configure(null);
+    }
+
+    /** Adds and commits a file in a new repository in DIR, then opens it
+     *  again and asks its status. **/
+    private static void work(File dir) {
+        Gitlet g = Gitlet.init(dir);
+        Utils.writeContents(Utils.join(dir, "f.txt"), "hello\n");
+        g.add("f.txt");
+        g.commit("first");
+        Gitlet.open(dir).status();
+    }
+
+    @Test
+    public void offRecordsNothing() throws IOException {
+        Trace.configure("0");
+        assertFalse(Trace.enabled());
+        assertEquals(0, Trace.start());
+        work(ObjectStoreTest.tempDir());
+        for (Trace.Phase p : Trace.Phase.values()) {
+            assertEquals(p.getName(), 0, p.getCalls());
+        }
+    }
+
+    @Test
+    public void countsPhases() throws IOException {
+        Trace.configure("text");
+        work(ObjectStoreTest.tempDir());
+        assertEquals(1, Trace.Phase.LOAD.getCalls());
+        assertTrue(Trace.Phase.HASH.getCalls() > 0);
+        assertTrue(Trace.Phase.OBJECT_WRITE.getAmount() >= "hello\n".length());
+        assertTrue(Trace.Phase.INDEX_READ.getAmount() > 0);
+        assertTrue(Trace.Phase.SCAN.getAmount() >= 1);
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        Trace.report(new PrintStream(out), "status");
+        String text = out.toString();
+        assertTrue(text.startsWith("gitlet trace: status, "));
+        assertTrue(text.matches("(?s).*\nload +1 +[0-9.]+\n.*"));
+        assertTrue(text.contains(" files"));
+        assertTrue(text.contains("\nindex.write "));
+    }
+
+    @Test
+    public void reportsJson() throws IOException {
+        Trace.configure("json");
+        work(ObjectStoreTest.tempDir());
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        Trace.report(new PrintStream(out), "say \"hi\"");
+        String json = out.toString().trim();
+        assertTrue(json.startsWith("{\"command\":\"say \\\"hi\\\"\",\"ms\":"));
+        assertTrue(json.contains("{\"phase\":\"load\",\"calls\":1,\"ms\":"));
+        assertTrue(json.matches(".*\"phase\":\"scan\",[^}]*\"files\":\\d+}.*"));
+        assertTrue(json.endsWith("]}"));
+    }
+
+    @Test
+    public void emitsFlightRecorderEvents() throws IOException {
+        Trace.configure("text");
+        Path file = ObjectStoreTest.tempDir().toPath().resolve("t.jfr");
+        try (Recording recording = new Recording()) {
+            recording.enable("gitlet.Phase");
+            recording.start();
+            work(ObjectStoreTest.tempDir());
+            recording.stop();
+            recording.dump(file);
+        }
+        List<RecordedEvent> events = RecordingFile.readAllEvents(file);
+        assertFalse(events.isEmpty());
+        boolean load = false;
+        for (RecordedEvent e : events) {
+            assertEquals("gitlet.Phase", e.getEventType().getName());
+            load |= e.getString("phase").equals("load");
+        }
+        assertTrue(load);
+    }
+}
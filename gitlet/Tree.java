@@ -0,0 +1,267 @@
+package gitlet;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+/** A directory of a commit: the hashes of the blobs of its files and
+ *  of the trees of its subdirectories. A tree is stored in the object
+ *  store under the hash of its encoding, one line per entry,
+ *
+ *      blob HASH NAME
+ *      tree HASH NAME
+ *
+ *  files first, each group in order of name. Since the encoding is
+ *  canonical, a directory that did not change between two commits has
+ *  the same hash in both and is stored only once.
+ *
+ *  Paths of files below the root use '/' to separate directories.
+ *
+ * @author tomzheng
+ */
+class Tree {
+
+    /** Length of a hash in hex digits. **/
+    private static final int HASH_LENGTH = ObjectId.HEX_LENGTH;
+
+    /** Files of this directory, mapped to their blob hashes. **/
+    private final TreeMap<String, ObjectId> _blobs = new TreeMap<>();
+
+    /** Subdirectories, mapped to their tree hashes. **/
+    private final TreeMap<String, ObjectId> _trees = new TreeMap<>();
+
+    /** Getter method for the files of this directory.
+     * @return treemap from name to blob hash **/
+    TreeMap<String, ObjectId> getBlobs() {
+        return _blobs;
+    }
+
+    /** Getter method for the subdirectories of this directory.
+     * @return treemap from name to tree hash **/
+    TreeMap<String, ObjectId> getTrees() {
+        return _trees;
+    }
+
+    /** Returns the canonical encoding of this tree. **/
+    byte[] encode() {
+        StringBuilder out = new StringBuilder();
+        for (Map.Entry<String, ObjectId> e: _blobs.entrySet()) {
+            out.append(ObjectStore.BLOB).append(' ').append(e.getValue())
+                .append(' ').append(e.getKey()).append('\n');
+        }
+        for (Map.Entry<String, ObjectId> e: _trees.entrySet()) {
+            out.append(ObjectStore.TREE).append(' ').append(e.getValue())
+                .append(' ').append(e.getKey()).append('\n');
+        }
+        return out.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    /** Returns the tree encoded as DATA. **/
+    static Tree decode(byte[] data) {
+        Tree tree = new Tree();
+        String text = new String(data, StandardCharsets.UTF_8);
+        int start = 0;
+        while (start < text.length()) {
+            int end = text.indexOf('\n', start);
+            int name = start + ObjectStore.BLOB.length() + HASH_LENGTH + 2;
+            ObjectId hash = ObjectId.of(text, name - HASH_LENGTH - 1);
+            if (text.startsWith(ObjectStore.BLOB, start)) {
+                tree._blobs.put(text.substring(name, end), hash);
+            } else {
+                tree._trees.put(text.substring(name, end), hash);
+            }
+            start = end + 1;
+        }
+        return tree;
+    }
+
+    /** Stores this tree in STORE, unless it is there already.
+     * @return hash **/
+    ObjectId write(ObjectStore store) {
+        byte[] data = encode();
+        String hash = Utils.sha1(data);
+        if (!store.contains(hash)) {
+            store.write(hash, ObjectStore.TREE, data);
+        }
+        return ObjectId.of(hash);
+    }
+
+    /** Reads the tree with hash HASH from STORE.
+     * @return tree **/
+    static Tree read(ObjectStore store, ObjectId hash) {
+        return decode(store.read(hash.toString(), ObjectStore.TREE));
+    }
+
+    /** Reads the tree with hash HASH from BUILT, a map from hash to the
+     *  trees not stored, or else from STORE.
+     * @return tree **/
+    private static Tree read(ObjectStore store, Map<ObjectId, Tree> built,
+                             ObjectId hash) {
+        Tree tree = built.get(hash);
+        return tree != null ? tree : read(store, hash);
+    }
+
+    /** Stores the trees of the directories holding FILES, a map from
+     *  path to blob hash, in STORE. CACHE maps the path of directories
+     *  (the root being "") whose tree hashes are already known to those
+     *  hashes; such directories are not looked into again. The hashes
+     *  of the other directories are added to CACHE.
+     * @return hash of the root tree **/
+    static ObjectId write(ObjectStore store, Map<String, ObjectId> files,
+                          Map<String, ObjectId> cache) {
+        String[] paths = files.keySet().toArray(new String[0]);
+        Arrays.sort(paths);
+        return write(store, files, paths, 0, paths.length, "", cache, null);
+    }
+
+    /** Returns the hash of the root tree of the directories holding
+     *  FILES, as write would store it, but stores nothing. The trees
+     *  of the directories not in CACHE, which is left as it is, are
+     *  built and put in BUILT, a map from hash to tree. **/
+    static ObjectId hash(Map<String, ObjectId> files,
+                         Map<String, ObjectId> cache,
+                         Map<ObjectId, Tree> built) {
+        String[] paths = files.keySet().toArray(new String[0]);
+        Arrays.sort(paths);
+        return write(null, files, paths, 0, paths.length, "", cache, built);
+    }
+
+    /** Stores the tree of the directory DIR, whose files are the PATHS
+     *  from LO up to HI, with hashes in FILES, and those of its
+     *  subdirectories, in STORE, using and filling CACHE. If STORE is
+     *  null, the trees are put in BUILT instead and CACHE is not
+     *  filled.
+     * @return hash **/
+    private static ObjectId write(ObjectStore store,
+                                  Map<String, ObjectId> files,
+                                  String[] paths, int lo, int hi, String dir,
+                                  Map<String, ObjectId> cache,
+                                  Map<ObjectId, Tree> built) {
+        String key = dir.isEmpty() ? "" : dir.substring(0, dir.length() - 1);
+        ObjectId cached = cache.get(key);
+        if (cached != null) {
+            return cached;
+        }
+        Tree tree = new Tree();
+        int i = lo;
+        while (i < hi) {
+            String rest = paths[i].substring(dir.length());
+            int slash = rest.indexOf('/');
+            if (slash < 0) {
+                tree._blobs.put(rest, files.get(paths[i]));
+                i += 1;
+            } else {
+                String sub = dir + rest.substring(0, slash + 1);
+                int j = end(paths, i, hi, sub);
+                tree._trees.put(rest.substring(0, slash),
+                        write(store, files, paths, i, j, sub, cache, built));
+                i = j;
+            }
+        }
+        if (store == null) {
+            ObjectId hash = ObjectId.of(Utils.sha1(tree.encode()));
+            built.put(hash, tree);
+            return hash;
+        }
+        ObjectId hash = tree.write(store);
+        cache.put(key, hash);
+        return hash;
+    }
+
+    /** Returns the index of the first of the sorted PATHS from LO up to
+     *  HI that does not start with PREFIX, given that PATHS[LO] does. **/
+    private static int end(String[] paths, int lo, int hi, String prefix) {
+        int low = lo + 1;
+        int high = hi;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (paths[mid].startsWith(prefix)) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    /** Adds the files below the tree HASH in STORE, whose path is
+     *  PREFIX, to FILES as a map from path to blob hash, and the paths
+     *  of its directories to TREES as a map from path to tree hash,
+     *  unless TREES is null. **/
+    static void flatten(ObjectStore store, ObjectId hash, String prefix,
+                        Map<String, ObjectId> files,
+                        Map<String, ObjectId> trees) {
+        if (trees != null) {
+            trees.put(prefix, hash);
+        }
+        String dir = prefix.isEmpty() ? "" : prefix + "/";
+        Tree tree = read(store, hash);
+        for (Map.Entry<String, ObjectId> e: tree._blobs.entrySet()) {
+            files.put(dir + e.getKey(), e.getValue());
+        }
+        for (Map.Entry<String, ObjectId> e: tree._trees.entrySet()) {
+            flatten(store, e.getValue(), dir + e.getKey(), files, trees);
+        }
+    }
+
+    /** Getter method for the blob of the file PATH below the tree
+     *  ROOT in STORE. Only the trees of the directories on the way to
+     *  PATH are read.
+     * @return blob hash, or null if there is no such file **/
+    static ObjectId find(ObjectStore store, ObjectId root, String path) {
+        ObjectId hash = root;
+        int start = 0;
+        for (int slash = path.indexOf('/'); slash >= 0;
+             slash = path.indexOf('/', start)) {
+            hash = read(store, hash)._trees.get(path.substring(start, slash));
+            if (hash == null) {
+                return null;
+            }
+            start = slash + 1;
+        }
+        return read(store, hash)._blobs.get(path.substring(start));
+    }
+
+    /** Adds to CHANGES the path of each file below PREFIX whose blob
+     *  differs between the trees FROM and TO in STORE, mapped to its
+     *  blob hashes in FROM and in TO, null where it is missing. FROM
+     *  or TO may be null for a missing directory. Subtrees with the
+     *  same hash on both sides are skipped without being read, so the
+     *  cost depends on the directories that changed. **/
+    static void diff(ObjectStore store, ObjectId from, ObjectId to,
+                     String prefix, Map<String, ObjectId[]> changes) {
+        diff(store, Collections.emptyMap(), from, to, prefix, changes);
+    }
+
+    /** As diff above, but the trees in BUILT, a map from hash to tree,
+     *  are taken from there rather than read from STORE. **/
+    static void diff(ObjectStore store, Map<ObjectId, Tree> built,
+                     ObjectId from, ObjectId to, String prefix,
+                     Map<String, ObjectId[]> changes) {
+        if (Objects.equals(from, to)) {
+            return;
+        }
+        Tree a = from == null ? new Tree() : read(store, built, from);
+        Tree b = to == null ? new Tree() : read(store, built, to);
+        String dir = prefix.isEmpty() ? "" : prefix + "/";
+        TreeSet<String> names = new TreeSet<>(a._blobs.keySet());
+        names.addAll(b._blobs.keySet());
+        for (String name: names) {
+            ObjectId x = a._blobs.get(name);
+            ObjectId y = b._blobs.get(name);
+            if (!Objects.equals(x, y)) {
+                changes.put(dir + name, new ObjectId[] {x, y});
+            }
+        }
+        names = new TreeSet<>(a._trees.keySet());
+        names.addAll(b._trees.keySet());
+        for (String name: names) {
+            diff(store, built, a._trees.get(name), b._trees.get(name),
+                    dir + name, changes);
+        }
+    }
+}
@@ -0,0 +1,124 @@
+package gitlet;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.TreeMap;
+
+/** Tests of trees.
+ *  @author tomzheng
+ */
+public class TreeTest {
+
+    /** Returns a store in a fresh directory. */
+    private static ObjectStore store() throws IOException {
+        ObjectStore objects = new ObjectStore(ObjectStoreTest.tempDir());
+        objects.create();
+        return objects;
+    }
+
+    /** Returns the hash of S. */
+    private static ObjectId id(String s) {
+        return ObjectId.of(Utils.sha1(s));
+    }
+
+    @Test
+    public void flattenUndoesWrite() throws IOException {
+        ObjectStore objects = store();
+        HashMap<String, ObjectId> files = new HashMap<>();
+        files.put("a.txt", id("a"));
+        files.put("a/b.txt", id("b"));
+        files.put("a/b/c.txt", id("c"));
+        files.put("a0/d.txt", id("d"));
+        HashMap<String, ObjectId> cache = new HashMap<>();
+        ObjectId root = Tree.write(objects, files, cache);
+        assertEquals(root, cache.get(""));
+        HashMap<String, ObjectId> flat = new HashMap<>();
+        HashMap<String, ObjectId> trees = new HashMap<>();
+        Tree.flatten(objects, root, "", flat, trees);
+        assertEquals(files, flat);
+        assertEquals(cache, trees);
+        Tree a = Tree.read(objects, trees.get("a"));
+        assertEquals(id("b"), a.getBlobs().get("b.txt"));
+        assertEquals(trees.get("a/b"), a.getTrees().get("b"));
+    }
+
+    @Test
+    public void hashingStoresNothing() throws IOException {
+        ObjectStore objects = store();
+        HashMap<String, ObjectId> files = new HashMap<>();
+        files.put("a.txt", id("a"));
+        files.put("d/b.txt", id("b"));
+        HashMap<String, ObjectId> cache = new HashMap<>();
+        HashMap<ObjectId, Tree> built = new HashMap<>();
+        ObjectId root = Tree.hash(files, cache, built);
+        assertTrue(cache.isEmpty());
+        assertTrue(objects.looseIds().isEmpty());
+        assertEquals(2, built.size());
+        assertEquals(root, Tree.write(objects, files, new HashMap<>()));
+        files.put("d/c.txt", id("c"));
+        TreeMap<String, ObjectId[]> changes = new TreeMap<>();
+        Tree.diff(objects, built, root,
+                Tree.hash(files, new HashMap<>(), built), "", changes);
+        assertEquals(1, changes.size());
+        assertArrayEquals(new ObjectId[] {null, id("c")},
+                changes.get("d/c.txt"));
+    }
+
+    @Test
+    public void unchangedDirectoriesKeepTheirHash() throws IOException {
+        ObjectStore objects = store();
+        HashMap<String, ObjectId> files = new HashMap<>();
+        files.put("src/x.txt", id("x"));
+        files.put("doc/y.txt", id("y"));
+        HashMap<String, ObjectId> before = new HashMap<>();
+        ObjectId root = Tree.write(objects, files, before);
+        files.put("doc/y.txt", id("y2"));
+        HashMap<String, ObjectId> after = new HashMap<>();
+        assertNotEquals(root, Tree.write(objects, files, after));
+        assertEquals(before.get("src"), after.get("src"));
+        assertNotEquals(before.get("doc"), after.get("doc"));
+    }
+
+    @Test
+    public void cachedDirectoriesAreNotRebuilt() throws IOException {
+        ObjectStore objects = store();
+        HashMap<String, ObjectId> files = new HashMap<>();
+        files.put("src/x.txt", id("x"));
+        HashMap<String, ObjectId> cache = new HashMap<>();
+        cache.put("src",
+                ObjectId.of("0123456789012345678901234567890123456789"));
+        ObjectId root = Tree.write(objects, files, cache);
+        assertEquals(cache.get("src"),
+                Tree.read(objects, root).getTrees().get("src"));
+    }
+
+    @Test
+    public void diffSkipsIdenticalSubtrees() throws IOException {
+        ObjectStore objects = store();
+        ObjectId missing =
+            ObjectId.of("0123456789012345678901234567890123456789");
+        HashMap<String, ObjectId> files = new HashMap<>();
+        files.put("same/x.txt", id("x"));
+        files.put("doc/y.txt", id("y"));
+        HashMap<String, ObjectId> cache = new HashMap<>();
+        cache.put("same", missing);
+        ObjectId from = Tree.write(objects, files, cache);
+        files.put("doc/y.txt", id("y2"));
+        files.put("doc/z.txt", id("z"));
+        cache.remove("doc");
+        cache.remove("");
+        ObjectId to = Tree.write(objects, files, cache);
+        TreeMap<String, ObjectId[]> changes = new TreeMap<>();
+        Tree.diff(objects, from, to, "", changes);
+        assertEquals(2, changes.size());
+        assertArrayEquals(new ObjectId[] {id("y"), id("y2")},
+                changes.get("doc/y.txt"));
+        assertArrayEquals(new ObjectId[] {null, id("z")},
+                changes.get("doc/z.txt"));
+        assertNull(Tree.find(objects, to, "doc/w.txt"));
+        assertEquals(id("z"), Tree.find(objects, to, "doc/z.txt"));
+    }
+}
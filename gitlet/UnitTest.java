@@ -12,7 +12,25 @@ public class UnitTest {
     /** Run the JUnit tests in the loa package. Add xxxTest.class entries to
      *  the arguments of runClasses to run other JUnit tests. */
     public static void main(String[] ignored) {
-        System.exit(textui.runClasses(UnitTest.class));
+        System.exit(textui.runClasses(UnitTest.class,
+                                         ObjectStoreTest.class,
+                                         DeltaTest.class,
+                                         PackFileTest.class,
+                                         TreeTest.class,
+                                         MergeBaseTest.class,
+                                         CommitGraphTest.class,
+                                         MessageIndexTest.class,
+                                         TimestampFormatTest.class,
+                                         Sha1Test.class,
+                                         ObjectIdTest.class,
+                                         CommitTest.class,
+                                         DiffTest.class,
+                                         Merge3Test.class,
+                                         DaemonTest.class,
+                                         BatchTest.class,
+                                         GitletTest.class,
+                                         TraceTest.class,
+                                         MigrationTest.class));
     }
 
     /** A dummy test to avoid complaint. */
@@ -1,6 +1,7 @@
 package gitlet;
 
 import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.FileInputStream;
@@ -9,13 +10,15 @@ import java.io.IOException;
 import java.io.ObjectInputStream;
 import java.io.ObjectOutputStream;
 import java.io.Serializable;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.nio.file.Files;
 import java.nio.file.Paths;
 import java.nio.charset.StandardCharsets;
 import java.security.MessageDigest;
-import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.Formatter;
+import java.util.Collections;
 import java.util.List;
 
 
@@ -32,25 +35,24 @@ class Utils {
     /** Returns the SHA-1 hash of the concatenation of VALS, which may
      *  be any mixture of byte arrays and Strings. */
     static String sha1(Object... vals) {
-        try {
-            MessageDigest md = MessageDigest.getInstance("SHA-1");
-            for (Object val : vals) {
-                if (val instanceof byte[]) {
-                    md.update((byte[]) val);
-                } else if (val instanceof String) {
-                    md.update(((String) val).getBytes(StandardCharsets.UTF_8));
-                } else {
-                    throw new IllegalArgumentException("improper type to sha1");
-                }
-            }
-            Formatter result = new Formatter();
-            for (byte b : md.digest()) {
-                result.format("%02x", b);
+        long start = Trace.start();
+        long bytes = 0;
+        MessageDigest md = Sha1.digest();
+        for (Object val : vals) {
+            byte[] data;
+            if (val instanceof byte[]) {
+                data = (byte[]) val;
+            } else if (val instanceof String) {
+                data = ((String) val).getBytes(StandardCharsets.UTF_8);
+            } else {
+                throw new IllegalArgumentException("improper type to sha1");
             }
-            return result.toString();
-        } catch (NoSuchAlgorithmException excp) {
-            throw new IllegalArgumentException("System does not support SHA-1");
+            md.update(data);
+            bytes += data.length;
         }
+        String hash = Sha1.hex(md.digest());
+        Trace.end(Trace.Phase.HASH, start, bytes);
+        return hash;
     }
 
     /** Returns the SHA-1 hash of the concatenation of the strings in
@@ -59,6 +61,17 @@ class Utils {
         return sha1(vals.toArray(new Object[vals.size()]));
     }
 
+    /** Returns the SHA-1 hash of the contents of FILE, read through a
+     *  fixed-size buffer.  Throws IllegalArgumentException in case of
+     *  problems. */
+    static String sha1(File file) {
+        try (FileChannel in = FileChannel.open(file.toPath())) {
+            return Sha1.of(in, ByteBuffer.allocate(1 << 16));
+        } catch (IOException excp) {
+            throw new IllegalArgumentException(excp.getMessage());
+        }
+    }
+
     /* FILE DELETION */
 
     /** Deletes FILE if it exists and is not a directory.  Returns true
@@ -93,8 +106,11 @@ class Utils {
         if (!file.isFile()) {
             throw new IllegalArgumentException("must be a normal file");
         }
+        long start = Trace.start();
         try {
-            return Files.readAllBytes(file.toPath());
+            byte[] contents = Files.readAllBytes(file.toPath());
+            Trace.end(Trace.Phase.FILE_READ, start, contents.length);
+            return contents;
         } catch (IOException excp) {
             throw new IllegalArgumentException(excp.getMessage());
         }
@@ -117,16 +133,18 @@ class Utils {
                 throw
                     new IllegalArgumentException("cannot overwrite directory");
             }
+            long start = Trace.start();
+            long bytes = 0;
             BufferedOutputStream str =
                 new BufferedOutputStream(Files.newOutputStream(file.toPath()));
             for (Object obj : contents) {
-                if (obj instanceof byte[]) {
-                    str.write((byte[]) obj);
-                } else {
-                    str.write(((String) obj).getBytes(StandardCharsets.UTF_8));
-                }
+                byte[] data = obj instanceof byte[] ? (byte[]) obj
+                    : ((String) obj).getBytes(StandardCharsets.UTF_8);
+                str.write(data);
+                bytes += data.length;
             }
             str.close();
+            Trace.end(Trace.Phase.FILE_WRITE, start, bytes);
         } catch (IOException | ClassCastException excp) {
             throw new IllegalArgumentException(excp.getMessage());
         }
@@ -148,6 +166,23 @@ class Utils {
         }
     }
 
+    /** Return an object of type T read from BYTES, casting it to
+     *  EXPECTEDCLASS.  Throws IllegalArgumentException in case of
+     *  problems. */
+    static <T extends Serializable> T deserialize(byte[] bytes,
+                                                  Class<T> expectedClass) {
+        try {
+            ObjectInputStream in =
+                new ObjectInputStream(new ByteArrayInputStream(bytes));
+            T result = expectedClass.cast(in.readObject());
+            in.close();
+            return result;
+        } catch (IOException | ClassCastException
+                 | ClassNotFoundException excp) {
+            throw new IllegalArgumentException(excp.getMessage());
+        }
+    }
+
     /** Write OBJ to FILE. */
     static void writeObject(File file, Serializable obj) {
         writeContents(file, serialize(obj));
@@ -168,11 +203,13 @@ class Utils {
      *  lexicographic order as Java Strings.  Returns null if DIR does
      *  not denote a directory. */
     static List<String> plainFilenamesIn(File dir) {
+        long start = Trace.start();
         String[] files = dir.list(PLAIN_FILES);
         if (files == null) {
             return null;
         } else {
             Arrays.sort(files);
+            Trace.end(Trace.Phase.SCAN, start, files.length);
             return Arrays.asList(files);
         }
     }
@@ -184,6 +221,41 @@ class Utils {
         return plainFilenamesIn(new File(dir));
     }
 
+    /** Returns the paths, relative to DIR and with '/' between
+     *  directories, of all plain files below DIR outside of .gitlet
+     *  directories, in lexicographic order as Java Strings.  Returns
+     *  null if DIR does not denote a directory. */
+    static List<String> plainFilenamesUnder(File dir) {
+        if (!dir.isDirectory()) {
+            return null;
+        }
+        long start = Trace.start();
+        List<String> names = new ArrayList<>();
+        plainFilenamesUnder(dir, "", names);
+        Collections.sort(names);
+        Trace.end(Trace.Phase.SCAN, start, names.size());
+        return names;
+    }
+
+    /** Adds the paths of the plain files below DIR, whose path is
+     *  PREFIX, to NAMES. */
+    private static void plainFilenamesUnder(File dir, String prefix,
+                                            List<String> names) {
+        String[] entries = dir.list();
+        if (entries == null) {
+            return;
+        }
+        for (String entry : entries) {
+            File f = new File(dir, entry);
+            if (f.isFile()) {
+                names.add(prefix + entry);
+            } else if (f.isDirectory() && !entry.equals(".gitlet")
+                       && !Files.isSymbolicLink(f.toPath())) {
+                plainFilenamesUnder(f, prefix + entry + "/", names);
+            }
+        }
+    }
+
     /* OTHER FILE UTILITIES */
 
     /** Return the concatentation of FIRST and OTHERS into a File designator,